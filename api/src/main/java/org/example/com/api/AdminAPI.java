@@ -0,0 +1,47 @@
+package org.example.com.api;
+
+import io.sinistral.proteus.server.ServerResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.data.RepositoryStatistics;
+
+
+@SuppressWarnings("ALL")
+@Path("/admin")
+@Produces((MediaType.APPLICATION_JSON))
+@Consumes((MediaType.MEDIA_TYPE_WILDCARD))
+public class AdminAPI {
+
+  @Inject
+  @Named("RepositoryVehicles")
+  private IVehiclesRepository repository;
+
+  public AdminAPI() {
+  }
+
+  @Inject
+  public AdminAPI(@Named("RepositoryVehicles") final IVehiclesRepository repository) {
+    this.repository = repository;
+  }
+
+  @GET
+  @Path("/stats")
+  @Produces((MediaType.APPLICATION_JSON))
+  @Consumes((MediaType.MEDIA_TYPE_WILDCARD))
+  @Operation(summary = "Cache hit, miss and eviction counts and weights, Aerospike batch reads and keys read per endpoint, since startup.", responses = {
+      @ApiResponse(description = "Repository statistics", content = @Content(schema = @Schema(implementation = RepositoryStatistics.class)))}, tags = "Admin API")
+  public ServerResponse<RepositoryStatistics> stats() {
+    return ServerResponse.response(repository.getStatistics()).applicationJson();
+  }
+
+}
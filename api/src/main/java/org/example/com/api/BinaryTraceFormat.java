@@ -0,0 +1,84 @@
+package org.example.com.api;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import org.example.com.data.VehicleData;
+
+/**
+ * Compact trace for high volume consumers, served when {@link #MEDIA_TYPE} is preferred by the
+ * Accept header.
+ *
+ * <p>Layout (version 1):
+ * <pre>
+ *   version     byte
+ *   vehicle id  varint length + UTF-8 bytes
+ *   points      until the end of the body, each one:
+ *     ts        zig-zag varint delta to the previous point, the first to 0
+ *     lon, lat  zig-zag varint deltas of the coordinates in millionths of a degree
+ * </pre>
+ * The point count is not known when streaming starts, so none is written.
+ */
+public class BinaryTraceFormat implements TraceFormat {
+
+  public static final String MEDIA_TYPE = "application/x-vehicle-trace";
+  public static final byte VERSION_1 = 1;
+  private static final double COORDINATE_SCALE = 1_000_000d;
+
+  private long ts;
+  private int lon;
+  private int lat;
+
+  @Override
+  public String contentType() {
+    return MEDIA_TYPE;
+  }
+
+  @Override
+  public ByteBuffer begin(final String vehicleId) {
+    final byte[] id = vehicleId.getBytes(StandardCharsets.UTF_8);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(6 + id.length);
+    out.write(VERSION_1);
+    writeVarLong(out, id.length);
+    out.write(id, 0, id.length);
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  @Override
+  public ByteBuffer points(final Collection<VehicleData> points) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 8);
+    for (final VehicleData point : points) {
+      final int pointLon = quantize(point.getLon());
+      final int pointLat = quantize(point.getLat());
+      writeVarLong(out, zigZag(point.getTs() - ts));
+      writeVarLong(out, zigZag((long) pointLon - lon));
+      writeVarLong(out, zigZag((long) pointLat - lat));
+      ts = point.getTs();
+      lon = pointLon;
+      lat = pointLat;
+    }
+    return ByteBuffer.wrap(out.toByteArray());
+  }
+
+  @Override
+  public ByteBuffer end() {
+    return ByteBuffer.allocate(0);
+  }
+
+  private static int quantize(final float coordinate) {
+    return (int) Math.round(coordinate * COORDINATE_SCALE);
+  }
+
+  private static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static void writeVarLong(final ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+}
@@ -0,0 +1,57 @@
+package org.example.com.api;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import javax.ws.rs.core.MediaType;
+import org.example.com.api.model.VehicleTrace;
+import org.example.com.data.VehicleData;
+
+/**
+ * The JSON of {@link VehicleTrace}, written point by point.
+ */
+public class JsonTraceFormat implements TraceFormat {
+
+  private boolean first = true;
+
+  @Override
+  public String contentType() {
+    return MediaType.APPLICATION_JSON;
+  }
+
+  @Override
+  public ByteBuffer begin(final String vehicleId) {
+    return encode(new StringBuilder("{\"id\":\"")
+        .append(JsonStringEncoder.getInstance().quoteAsString(vehicleId))
+        .append("\",\"trace\":["));
+  }
+
+  @Override
+  public ByteBuffer points(final Collection<VehicleData> points) {
+    final StringBuilder json = new StringBuilder(points.size() * 56);
+    for (final VehicleData point : points) {
+      if (!first) {
+        json.append(',');
+      }
+      first = false;
+      json.append("{\"tsMicro\":")
+          .append(point.getTs())
+          .append(",\"lon\":")
+          .append(point.getLon())
+          .append(",\"lat\":")
+          .append(point.getLat())
+          .append('}');
+    }
+    return encode(json);
+  }
+
+  @Override
+  public ByteBuffer end() {
+    return encode(new StringBuilder("]}"));
+  }
+
+  private static ByteBuffer encode(final StringBuilder json) {
+    return ByteBuffer.wrap(json.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -11,6 +11,7 @@ public class Main extends ProteusApplication {
     simpleHttpServer.addModule(RepositoryModule.class);
     simpleHttpServer.addController(OperatorAPI.class);
     simpleHttpServer.addController(VehicleAPI.class);
+    simpleHttpServer.addController(AdminAPI.class);
 
     simpleHttpServer.start();
   }
@@ -6,6 +6,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -19,7 +20,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
-import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.IVehiclesRepositoryAsync;
 
 
 @SuppressWarnings("ALL")
@@ -30,13 +31,13 @@ public class OperatorAPI {
 
   @Inject
   @Named("RepositoryVehicles")
-  private IVehiclesRepository repository;
+  private IVehiclesRepositoryAsync repository;
 
   public OperatorAPI() {
   }
 
   @Inject
-  public OperatorAPI(@Named("RepositoryVehicles") final IVehiclesRepository repository) {
+  public OperatorAPI(@Named("RepositoryVehicles") final IVehiclesRepositoryAsync repository) {
     this.repository = repository;
   }
 
@@ -50,9 +51,7 @@ public class OperatorAPI {
       @Parameter(description = "Start time in microseconds") @PathParam("start") final Long start,
       @Parameter(description = "End time in microseconds") @PathParam("end") final Long end
   ) {
-    return CompletableFuture.supplyAsync(() -> repository.getOperators(start, end),
-        IOPool.EXECUTORS
-    )
+    return repository.getOperatorsAsync(start, end)
         .thenApply(set -> ServerResponse.response(set).applicationJson());
   }
 
@@ -66,28 +65,55 @@ public class OperatorAPI {
       @Parameter(description = "Start time in microseconds") @PathParam("start") final Long start,
       @Parameter(description = "End time in microseconds") @PathParam("end") final Long end,
       @Parameter(description = "Operator Id") @PathParam("operatorId") final String operatorId,
-      @Parameter(description = "Optional query parameter, to query for stopped vehicles") @QueryParam("stopped") final Optional<Boolean> stopped
+      @Parameter(description = "Optional query parameter, to query for stopped vehicles") @QueryParam("stopped") final Optional<Boolean> stopped,
+      @Parameter(description = "Optional query parameter, X-Next-Cursor of the previous page. Not supported for stopped vehicles") @QueryParam("cursor") final Optional<String> cursor,
+      @Parameter(description = "Optional query parameter, most points a page covers, a vehicle may be listed by several pages") @QueryParam("limit") final Optional<Integer> limit
   ) {
+    if (Paging.isPaged(cursor, limit)) {
+      final Optional<String> invalid = stopped.filter(e -> e)
+          .map(e -> "paging is not supported for stopped vehicles")
+          .map(Optional::of)
+          .orElseGet(() -> Paging.validate(cursor, limit));
+      if (invalid.isPresent()) {
+        return CompletableFuture.completedFuture(ServerResponse.response((Set<String>) null)
+            .badRequest()
+            .body(invalid.get()));
+      }
+      return repository.getVehiclesOfOperatorPageAsync(start,
+          end,
+          operatorId,
+          cursor.orElse(null),
+          Paging.getLimit(limit)
+      ).thenApply(page -> {
+        final Set<String> ids = page.getPoints()
+            .stream()
+            .map(e -> e.getVehicleId())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        final ServerResponse<Set<String>> response = ServerResponse.response(ids).applicationJson();
+        return page.getNextCursor() == null ? response
+            : response.withHeader(Paging.NEXT_CURSOR.toString(), page.getNextCursor());
+      });
+    }
 
-    return CompletableFuture.supplyAsync(() -> stopped.filter(e -> e)
+    return stopped.filter(e -> e)
         .map(e -> getVehiclesStopped(repository, start, end, operatorId))
-        .orElseGet(() -> getVehicles(repository, start, end, operatorId)))
+        .orElseGet(() -> getVehicles(repository, start, end, operatorId))
         .thenApply(setOfIds -> ServerResponse.response(setOfIds).applicationJson());
   }
 
-  public static Set<String> getVehicles(
-      IVehiclesRepository repository, long from, long to, final String operatorId
+  public static CompletableFuture<Set<String>> getVehicles(
+      IVehiclesRepositoryAsync repository, long from, long to, final String operatorId
   ) {
-    return repository.getVehiclesOfOperator(from, to, operatorId)
-        .parallelStream()
-        .map(e -> e.getVehicleId())
-        .collect(Collectors.toSet());
+    return repository.getVehiclesOfOperatorAsync(from, to, operatorId)
+        .thenApply(vehicles -> vehicles.stream()
+            .map(e -> e.getVehicleId())
+            .collect(Collectors.toSet()));
   }
 
-  public static Set<String> getVehiclesStopped(
-      IVehiclesRepository repository, long from, long to, final String operatorId
+  public static CompletableFuture<Set<String>> getVehiclesStopped(
+      IVehiclesRepositoryAsync repository, long from, long to, final String operatorId
   ) {
-    return repository.getVehiclesStoppedOfOperator(from, to, operatorId);
+    return repository.getVehiclesStoppedOfOperatorAsync(from, to, operatorId);
   }
 
 }
@@ -0,0 +1,46 @@
+package org.example.com.api;
+
+import io.undertow.util.HttpString;
+import java.util.Optional;
+import org.example.com.repository.PageCursor;
+
+/**
+ * Query parameters of paged listings. A listing is paged once either the cursor or the limit is
+ * given, the cursor of the next page is returned in the {@link #NEXT_CURSOR} header, absent after
+ * the last page.
+ */
+public final class Paging {
+
+  public static final HttpString NEXT_CURSOR = new HttpString("X-Next-Cursor");
+  public static final int DEFAULT_LIMIT = 1000;
+  public static final int MAX_LIMIT = 10_000;
+
+  private Paging() {
+  }
+
+  public static boolean isPaged(final Optional<String> cursor, final Optional<Integer> limit) {
+    return cursor.isPresent() || limit.isPresent();
+  }
+
+  public static int getLimit(final Optional<Integer> limit) {
+    return limit.orElse(DEFAULT_LIMIT);
+  }
+
+  /**
+   * @return why the parameters are invalid, if they are
+   */
+  public static Optional<String> validate(
+      final Optional<String> cursor, final Optional<Integer> limit
+  ) {
+    final int pageSize = getLimit(limit);
+    if (pageSize < 1 || pageSize > MAX_LIMIT) {
+      return Optional.of("limit must be between 1 and " + MAX_LIMIT);
+    }
+    try {
+      cursor.ifPresent(PageCursor::decode);
+    } catch (final IllegalArgumentException e) {
+      return Optional.of("invalid cursor");
+    }
+    return Optional.empty();
+  }
+}
@@ -2,13 +2,25 @@ package org.example.com.api;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.name.Names;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Named;
+import org.example.com.repository.BatchSettings;
+import org.example.com.repository.BucketWriteMode;
+import org.example.com.repository.CacheSettings;
 import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.IVehiclesRepositoryAsync;
+import org.example.com.repository.Utils;
 import org.example.com.repository.VehiclesRepositoryImpl;
+import org.example.com.repository.data.RepositoryStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RepositoryModule extends AbstractModule {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryModule.class);
+
   @Inject
   @Named("repository.host")
   protected String host;
@@ -17,11 +29,127 @@ public class RepositoryModule extends AbstractModule {
   @Named("repository.port")
   protected int port;
 
+  @Inject
+  @Named("repository.cache.bucketsMb")
+  protected int bucketsMb;
+
+  @Inject
+  @Named("repository.cache.vehicleIndexMb")
+  protected int vehicleIndexMb;
+
+  @Inject
+  @Named("repository.cache.operatorIndexMb")
+  protected int operatorIndexMb;
+
+  @Inject
+  @Named("repository.cache.operatorMinutesIndexMb")
+  protected int operatorMinutesIndexMb;
+
+  @Inject
+  @Named("repository.cache.operatorVehicleIndexMb")
+  protected int operatorVehicleIndexMb;
+
+  @Inject
+  @Named("repository.cache.bucketSummariesMb")
+  protected int bucketSummariesMb;
+
+  @Inject
+  @Named("repository.cache.hourPresenceMb")
+  protected int hourPresenceMb;
+
+  @Inject
+  @Named("repository.cache.hourPartialsMb")
+  protected int hourPartialsMb;
+
+  @Inject
+  @Named("repository.cache.offHeapBucketsMb")
+  protected int offHeapBucketsMb;
+
+  @Inject
+  @Named("repository.cache.openPeriodTtlSeconds")
+  protected int openPeriodTtlSeconds;
+
+  @Inject
+  @Named("repository.cache.closedPeriodGraceSeconds")
+  protected int closedPeriodGraceSeconds;
+
+  @Inject
+  @Named("repository.cache.missingKeys")
+  protected int missingKeys;
+
+  @Inject
+  @Named("repository.cache.missingKeysTtlSeconds")
+  protected int missingKeysTtlSeconds;
+
+  @Inject
+  @Named("repository.warmup.days")
+  protected int warmUpDays;
+
+  @Inject
+  @Named("repository.warmup.budgetMb")
+  protected int warmUpBudgetMb;
+
+  @Inject
+  @Named("repository.warmup.background")
+  protected boolean warmUpInBackground;
+
+  @Inject
+  @Named("repository.batch.partitionSize")
+  protected int batchPartitionSize;
+
+  @Inject
+  @Named("repository.batch.parallelism")
+  protected int batchParallelism;
+
   @Override
   protected void configure() {
     super.configure();
     binder().requestInjection(this);
+    Utils.setBatchSettings(new BatchSettings(batchPartitionSize, batchParallelism));
+    final CacheSettings cacheSettings = CacheSettings.ofMegabytes(bucketsMb,
+        vehicleIndexMb,
+        operatorIndexMb,
+        operatorMinutesIndexMb,
+        operatorVehicleIndexMb,
+        offHeapBucketsMb
+    );
+    cacheSettings.setBucketSummariesMaxBytes(bucketSummariesMb * CacheSettings.MB);
+    cacheSettings.setHourPresenceMaxBytes(hourPresenceMb * CacheSettings.MB);
+    cacheSettings.setHourPartialsMaxBytes(hourPartialsMb * CacheSettings.MB);
+    cacheSettings.setOpenPeriodTtlMillis(TimeUnit.SECONDS.toMillis(openPeriodTtlSeconds));
+    cacheSettings.setClosedPeriodGraceMillis(TimeUnit.SECONDS.toMillis(closedPeriodGraceSeconds));
+    cacheSettings.setMissingKeysMaxSize(missingKeys);
+    cacheSettings.setMissingKeysTtlMillis(TimeUnit.SECONDS.toMillis(missingKeysTtlSeconds));
+    final VehiclesRepositoryImpl repository = new VehiclesRepositoryImpl(host,
+        port,
+        BucketWriteMode.REWRITE,
+        cacheSettings
+    );
+    if (warmUpDays > 0) {
+      final CompletableFuture<Void> warmUp = repository.warmUp(warmUpDays,
+          warmUpBudgetMb * CacheSettings.MB
+      ).whenComplete((v, throwable) -> {
+        final RepositoryStatistics statistics = repository.getStatistics();
+        if (throwable != null) {
+          LOGGER.error("Cache warm-up failed after {}/{} buckets",
+              statistics.getWarmUpBucketsRead(),
+              statistics.getWarmUpBuckets(),
+              throwable
+          );
+        } else {
+          LOGGER.info("Cache warm-up done: {}/{} buckets",
+              statistics.getWarmUpBucketsRead(),
+              statistics.getWarmUpBuckets()
+          );
+        }
+      });
+      if (!warmUpInBackground) {
+        warmUp.exceptionally(throwable -> null).join();
+      }
+    }
     bind(IVehiclesRepository.class).annotatedWith(Names.named("RepositoryVehicles"))
-        .toInstance(new VehiclesRepositoryImpl(host, port));
+        .toInstance(repository);
+    bind(IVehiclesRepositoryAsync.class).annotatedWith(Names.named("RepositoryVehicles"))
+        .toInstance(repository);
   }
 }
@@ -0,0 +1,56 @@
+package org.example.com.api;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import javax.ws.rs.core.MediaType;
+import org.example.com.data.VehicleData;
+
+/**
+ * Encoding of a streamed trace, see {@link VehicleTraceStream}. An instance encodes a single
+ * trace, {@link #begin} first, then each chunk of points in time order, then {@link #end}.
+ */
+public interface TraceFormat {
+
+  String contentType();
+
+  ByteBuffer begin(String vehicleId);
+
+  ByteBuffer points(Collection<VehicleData> points);
+
+  ByteBuffer end();
+
+  /**
+   * @param accept the Accept header, or null
+   * @return the format of the supported media type with the highest quality, JSON when the
+   *     header names none of them
+   */
+  static TraceFormat negotiate(final String accept) {
+    double json = 0;
+    double binary = 0;
+    if (accept == null) {
+      return new JsonTraceFormat();
+    }
+    for (final String range : accept.split(",")) {
+      final String[] parts = range.split(";");
+      final String type = parts[0].trim().toLowerCase();
+      double quality = 1;
+      for (int i = 1; i < parts.length; i++) {
+        final String parameter = parts[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2));
+          } catch (final NumberFormatException e) {
+            quality = 0;
+          }
+        }
+      }
+      if (type.equals(BinaryTraceFormat.MEDIA_TYPE)) {
+        binary = Math.max(binary, quality);
+      } else if (type.equals(MediaType.APPLICATION_JSON) || type.equals("application/*")
+          || type.equals(MediaType.WILDCARD)) {
+        json = Math.max(json, quality);
+      }
+    }
+    return binary > json ? new BinaryTraceFormat() : new JsonTraceFormat();
+  }
+}
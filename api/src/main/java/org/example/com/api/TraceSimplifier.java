@@ -0,0 +1,121 @@
+package org.example.com.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import org.example.com.data.VehicleData;
+
+/**
+ * Thins a streamed trace for zoomed out views, chunk by chunk: first keeps at most one point per
+ * time step, then simplifies the line with Douglas-Peucker. A chunk is what {@link
+ * VehicleTraceStream} writes at once, the points of one non-empty bucket of a streamed trace, or a
+ * whole page. The line is simplified per chunk, so the first and last point of every chunk are
+ * kept and memory stays bounded by the chunk. The time step carries over from chunk to chunk.
+ * Points are kept as they are, none is created.
+ */
+public class TraceSimplifier {
+
+  private static final double METERS_PER_DEGREE = 111_320d;
+
+  private final double toleranceMeters;
+  private final long stepMicros;
+  private long nextTs = Long.MIN_VALUE;
+
+  /**
+   * @param toleranceMeters largest distance of a dropped point to the simplified line, 0 or
+   *     less keeps every point
+   * @param stepMicros least time between kept points, 0 or less keeps every point
+   */
+  public TraceSimplifier(final double toleranceMeters, final long stepMicros) {
+    this.toleranceMeters = toleranceMeters;
+    this.stepMicros = stepMicros;
+  }
+
+  public boolean isEnabled() {
+    return toleranceMeters > 0 || stepMicros > 0;
+  }
+
+  /**
+   * Stateful across chunks, chunks have to be given in time order.
+   */
+  public Collection<VehicleData> apply(final NavigableSet<VehicleData> points) {
+    if (!isEnabled()) {
+      return points;
+    }
+    final List<VehicleData> kept = new ArrayList<>(stepMicros > 0 ? 16 : points.size());
+    for (final VehicleData point : points) {
+      if (stepMicros <= 0 || point.getTs() >= nextTs) {
+        kept.add(point);
+        nextTs = point.getTs() + stepMicros;
+      }
+    }
+    return toleranceMeters > 0 && kept.size() > 2 ? simplify(kept, toleranceMeters) : kept;
+  }
+
+  /**
+   * Douglas-Peucker on an equirectangular projection around the first point, iterative so long
+   * chunks do not recurse deeply.
+   */
+  static List<VehicleData> simplify(final List<VehicleData> points, final double toleranceMeters) {
+    final int count = points.size();
+    final double xScale = METERS_PER_DEGREE * Math.cos(Math.toRadians(points.get(0).getLat()));
+    final double[] x = new double[count];
+    final double[] y = new double[count];
+    for (int i = 0; i < count; i++) {
+      x[i] = points.get(i).getLon() * xScale;
+      y[i] = points.get(i).getLat() * METERS_PER_DEGREE;
+    }
+    final boolean[] keep = new boolean[count];
+    keep[0] = true;
+    keep[count - 1] = true;
+    final int[] stack = new int[2 * count];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = count - 1;
+    final double toleranceSquared = toleranceMeters * toleranceMeters;
+    while (top > 0) {
+      final int last = stack[--top];
+      final int first = stack[--top];
+      int farthest = -1;
+      double farthestSquared = toleranceSquared;
+      for (int i = first + 1; i < last; i++) {
+        final double distanceSquared = segmentDistanceSquared(x, y, first, last, i);
+        if (distanceSquared > farthestSquared) {
+          farthest = i;
+          farthestSquared = distanceSquared;
+        }
+      }
+      if (farthest > 0) {
+        keep[farthest] = true;
+        stack[top++] = first;
+        stack[top++] = farthest;
+        stack[top++] = farthest;
+        stack[top++] = last;
+      }
+    }
+    final List<VehicleData> simplified = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      if (keep[i]) {
+        simplified.add(points.get(i));
+      }
+    }
+    return simplified;
+  }
+
+  private static double segmentDistanceSquared(
+      final double[] x, final double[] y, final int first, final int last, final int i
+  ) {
+    final double dx = x[last] - x[first];
+    final double dy = y[last] - y[first];
+    final double lengthSquared = dx * dx + dy * dy;
+    double t = 0;
+    if (lengthSquared > 0) {
+      t = ((x[i] - x[first]) * dx + (y[i] - y[first]) * dy) / lengthSquared;
+      t = Math.max(0, Math.min(1, t));
+    }
+    final double px = x[first] + t * dx - x[i];
+    final double py = y[first] + t * dy - y[i];
+    return px * px + py * py;
+  }
+}
@@ -1,13 +1,14 @@
 package org.example.com.api;
 
-import io.sinistral.proteus.server.ServerResponse;
+import io.sinistral.proteus.server.ServerRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import java.util.Iterator;
-import java.util.concurrent.CompletableFuture;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.StatusCodes;
+import java.util.Optional;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.Consumes;
@@ -15,11 +16,10 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
-import org.example.com.api.model.VehicleGPSWithTS;
 import org.example.com.api.model.VehicleTrace;
-import org.example.com.data.VehicleData;
-import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.IVehiclesRepositoryAsync;
 
 
 @SuppressWarnings("ALL")
@@ -30,46 +30,56 @@ public class VehicleAPI {
 
   @Inject
   @Named("RepositoryVehicles")
-  private IVehiclesRepository repository;
+  private IVehiclesRepositoryAsync repository;
 
   public VehicleAPI() {
   }
 
   @Inject
-  public VehicleAPI(@Named("RepositoryVehicles") final IVehiclesRepository repository) {
+  public VehicleAPI(@Named("RepositoryVehicles") final IVehiclesRepositoryAsync repository) {
     this.repository = repository;
   }
 
   @GET
   @Path("/{start}/{end}/{id}/gps")
-  @Produces((MediaType.APPLICATION_JSON))
+  @Produces({MediaType.APPLICATION_JSON, BinaryTraceFormat.MEDIA_TYPE})
   @Consumes((MediaType.MEDIA_TYPE_WILDCARD))
-  @Operation(summary = "4 - Given a time frame [start-time, end-time] and a vehicle, return the trace of that vehicle (GPS entries, ordered by timestamp).", responses = {
-      @ApiResponse(description = "Get test's result details", content = @Content(schema = @Schema(implementation = String.class)))}, tags = "Vehicle API")
-  public CompletableFuture<ServerResponse<VehicleTrace>> traceVehicle(
+  @Operation(summary = "4 - Given a time frame [start-time, end-time] and a vehicle, return the trace of that vehicle (GPS entries, ordered by timestamp). Accept " + BinaryTraceFormat.MEDIA_TYPE + " for the compact binary trace.", responses = {
+      @ApiResponse(description = "Get test's result details", content = {
+          @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = VehicleTrace.class)),
+          @Content(mediaType = BinaryTraceFormat.MEDIA_TYPE, schema = @Schema(type = "string", format = "binary"))})}, tags = "Vehicle API")
+  public void traceVehicle(
+      final ServerRequest serverRequest,
       @Parameter(description = "Start time in microseconds") @PathParam("start") final Long start,
       @Parameter(description = "End time in microseconds") @PathParam("end") final Long end,
-      @Parameter(description = "Vehicle Id") @PathParam("id") final String id
+      @Parameter(description = "Vehicle Id") @PathParam("id") final String id,
+      @Parameter(description = "Optional query parameter, largest distance in meters of a dropped point to the simplified trace") @QueryParam("tolerance") final Optional<Double> tolerance,
+      @Parameter(description = "Optional query parameter, least time in microseconds between returned points") @QueryParam("step") final Optional<Long> step,
+      @Parameter(description = "Optional query parameter, X-Next-Cursor of the previous page") @QueryParam("cursor") final Optional<String> cursor,
+      @Parameter(description = "Optional query parameter, most points a page reads, before simplification") @QueryParam("limit") final Optional<Integer> limit
   ) {
-    return CompletableFuture.supplyAsync(() -> getTraceOf(repository, start, end, id))
-        .thenApply(vehicleTrace -> ServerResponse.response(vehicleTrace).applicationJson());
-  }
-
-  public static VehicleTrace getTraceOf(
-      IVehiclesRepository repository, final long from, final long to, String vehicleId
-  ) {
-    final VehicleTrace vehicleTrace = new VehicleTrace(vehicleId);
-    Iterator<VehicleData> iterator = repository.getVehiclesDataWithId(from, to, vehicleId)
-        .iterator();
-    while (iterator.hasNext()) {
-      VehicleData next = iterator.next();
-      VehicleGPSWithTS vehicleGPSWithTS = new VehicleGPSWithTS(next.getTs(),
-          next.getLon(),
-          next.getLat()
-      );
-      vehicleTrace.getTrace().add(vehicleGPSWithTS);
+    final HttpServerExchange exchange = serverRequest.getExchange();
+    final TraceSimplifier simplifier = new TraceSimplifier(tolerance.orElse(0d), step.orElse(0L));
+    if (!Paging.isPaged(cursor, limit)) {
+      VehicleTraceStream.send(exchange, repository, start, end, id, simplifier);
+      return;
+    }
+    final Optional<String> invalid = Paging.validate(cursor, limit);
+    if (invalid.isPresent()) {
+      exchange.setStatusCode(StatusCodes.BAD_REQUEST);
+      exchange.getResponseSender().send(invalid.get());
+      return;
     }
-    return vehicleTrace;
+    VehicleTraceStream.sendPage(exchange,
+        repository.getVehiclesDataWithIdPageAsync(start,
+            end,
+            id,
+            cursor.orElse(null),
+            Paging.getLimit(limit)
+        ),
+        id,
+        simplifier
+    );
   }
 
 }
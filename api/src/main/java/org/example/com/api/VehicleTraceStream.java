@@ -0,0 +1,153 @@
+package org.example.com.api;
+
+import io.undertow.io.IoCallback;
+import io.undertow.io.Sender;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
+import io.undertow.util.StatusCodes;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.IVehiclesRepositoryAsync;
+import org.example.com.repository.data.VehicleDataPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+
+/**
+ * Writes a trace in the {@link TraceFormat} negotiated by the Accept header without building it
+ * in memory. The repository reads the buckets 24 hours at a time, reading the next 24 while the
+ * current ones are written, and hands over each non-empty bucket trimmed to the range: every
+ * bucket is one chunk of the response. A chunk is sent once the previous one is written, which in
+ * turn holds back the reads. A page is written as a single chunk. Points are thinned on the way by
+ * a {@link TraceSimplifier}.
+ *
+ * <p>The status is only sent with the first chunk, a failure before it is answered with a 500.
+ * After it the connection is closed, leaving the chunked response incomplete.
+ */
+public final class VehicleTraceStream {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VehicleTraceStream.class);
+
+  private final HttpServerExchange exchange;
+  private final String vehicleId;
+  private final TraceFormat format;
+  private final TraceSimplifier simplifier;
+  private boolean started;
+
+  private VehicleTraceStream(
+      final HttpServerExchange exchange,
+      final String vehicleId,
+      final TraceFormat format,
+      final TraceSimplifier simplifier
+  ) {
+    this.exchange = exchange;
+    this.vehicleId = vehicleId;
+    this.format = format;
+    this.simplifier = simplifier;
+  }
+
+  public static void send(
+      final HttpServerExchange exchange,
+      final IVehiclesRepositoryAsync repository,
+      final long from,
+      final long to,
+      final String vehicleId,
+      final TraceSimplifier simplifier
+  ) {
+    final VehicleTraceStream stream = new VehicleTraceStream(exchange,
+        vehicleId,
+        TraceFormat.negotiate(exchange.getRequestHeaders().getFirst(Headers.ACCEPT)),
+        simplifier
+    );
+    exchange.dispatch(SameThreadExecutor.INSTANCE,
+        () -> repository.streamVehiclesDataWithIdAsync(from, to, vehicleId, stream::write)
+            .thenCompose(v -> stream.write(null))
+            .whenComplete((v, throwable) -> stream.end(throwable))
+    );
+  }
+
+  /**
+   * Same as above for a single page, its next cursor is sent as the {@link Paging#NEXT_CURSOR}
+   * header.
+   */
+  public static void sendPage(
+      final HttpServerExchange exchange,
+      final CompletableFuture<VehicleDataPage> page,
+      final String vehicleId,
+      final TraceSimplifier simplifier
+  ) {
+    final VehicleTraceStream stream = new VehicleTraceStream(exchange,
+        vehicleId,
+        TraceFormat.negotiate(exchange.getRequestHeaders().getFirst(Headers.ACCEPT)),
+        simplifier
+    );
+    exchange.dispatch(SameThreadExecutor.INSTANCE, () -> page.thenCompose(points -> {
+      if (points.getNextCursor() != null) {
+        exchange.getResponseHeaders().put(Paging.NEXT_CURSOR, points.getNextCursor());
+      }
+      return points.getPoints().isEmpty() ? CompletableFuture.completedFuture(null)
+          : stream.write(points.getPoints());
+    }).thenCompose(v -> stream.write(null)).whenComplete((v, throwable) -> stream.end(throwable)));
+  }
+
+  /**
+   * @param points the next points, or null once there are no more
+   */
+  private CompletableFuture<Void> write(final NavigableSet<VehicleData> points) {
+    if (points == null) {
+      return writeBody(format.end());
+    }
+    final Collection<VehicleData> kept = simplifier.apply(points);
+    return kept.isEmpty() ? CompletableFuture.completedFuture(null)
+        : writeBody(format.points(kept));
+  }
+
+  private CompletableFuture<Void> writeBody(final ByteBuffer body) {
+    if (started) {
+      return send(body);
+    }
+    started = true;
+    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, format.contentType());
+    final ByteBuffer begin = format.begin(vehicleId);
+    final ByteBuffer first = ByteBuffer.allocate(begin.remaining() + body.remaining());
+    first.put(begin).put(body).flip();
+    return send(first);
+  }
+
+  private CompletableFuture<Void> send(final ByteBuffer buffer) {
+    final CompletableFuture<Void> sent = new CompletableFuture<>();
+    exchange.getResponseSender().send(buffer, new IoCallback() {
+      @Override
+      public void onComplete(final HttpServerExchange exchange, final Sender sender) {
+        sent.complete(null);
+      }
+
+      @Override
+      public void onException(
+          final HttpServerExchange exchange, final Sender sender, final IOException exception
+      ) {
+        sent.completeExceptionally(exception);
+      }
+    });
+    return sent;
+  }
+
+  private void end(final Throwable throwable) {
+    if (throwable == null) {
+      exchange.getResponseSender().close();
+      return;
+    }
+    LOGGER.error("Trace of {} failed", vehicleId, throwable);
+    if (started) {
+      IoUtils.safeClose(exchange.getConnection());
+    } else {
+      exchange.setStatusCode(StatusCodes.INTERNAL_SERVER_ERROR);
+      exchange.endExchange();
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package org.example.com.api.tests;
+
+import java.util.Optional;
+import org.example.com.api.Paging;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.PageCursor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PagingTest {
+
+  @Test
+  public void pagedOnceCursorOrLimitIsGiven() {
+    Assert.assertFalse(Paging.isPaged(Optional.empty(), Optional.empty()));
+    Assert.assertTrue(Paging.isPaged(Optional.of("c"), Optional.empty()));
+    Assert.assertTrue(Paging.isPaged(Optional.empty(), Optional.of(10)));
+    Assert.assertEquals(Paging.DEFAULT_LIMIT, Paging.getLimit(Optional.empty()));
+  }
+
+  @Test
+  public void validatesLimitAndCursor() {
+    final VehicleData last = new VehicleData();
+    last.setTs(1_584_025_920_000_000L);
+    last.setVehicleId("bus:33");
+    final String cursor = PageCursor.encode(last);
+
+    Assert.assertFalse(Paging.validate(Optional.empty(), Optional.empty()).isPresent());
+    Assert.assertFalse(Paging.validate(Optional.of(cursor), Optional.of(1)).isPresent());
+    Assert.assertFalse(Paging.validate(Optional.empty(), Optional.of(Paging.MAX_LIMIT))
+        .isPresent());
+    Assert.assertTrue(Paging.validate(Optional.empty(), Optional.of(0)).isPresent());
+    Assert.assertTrue(Paging.validate(Optional.empty(), Optional.of(Paging.MAX_LIMIT + 1))
+        .isPresent());
+    Assert.assertEquals(Optional.of("invalid cursor"),
+        Paging.validate(Optional.of("not a cursor"), Optional.empty())
+    );
+  }
+}
@@ -0,0 +1,112 @@
+package org.example.com.api.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.example.com.api.BinaryTraceFormat;
+import org.example.com.api.JsonTraceFormat;
+import org.example.com.api.TraceFormat;
+import org.example.com.data.VehicleData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TraceFormatTest {
+
+  @Test
+  public void negotiatesByQuality() {
+    Assert.assertTrue(TraceFormat.negotiate(null) instanceof JsonTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate("text/html") instanceof JsonTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate(BinaryTraceFormat.MEDIA_TYPE)
+        instanceof BinaryTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate("application/json, " + BinaryTraceFormat.MEDIA_TYPE)
+        instanceof JsonTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate("application/json;q=0.5, "
+        + BinaryTraceFormat.MEDIA_TYPE + ";q=0.9") instanceof BinaryTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate("*/*;q=0.1, " + BinaryTraceFormat.MEDIA_TYPE)
+        instanceof BinaryTraceFormat);
+    Assert.assertTrue(TraceFormat.negotiate(BinaryTraceFormat.MEDIA_TYPE + ";q=oops")
+        instanceof JsonTraceFormat);
+  }
+
+  @Test
+  public void binaryDeltasCarryAcrossChunks() {
+    final List<VehicleData> first = Arrays.asList(point(1_584_025_920_000_000L, -6.26f, 53.35f),
+        point(1_584_025_940_000_000L, -6.2601f, 53.3502f)
+    );
+    final List<VehicleData> second = Arrays.asList(point(1_584_025_960_000_000L, -6.2599f,
+        53.3498f
+    ));
+    final BinaryTraceFormat format = new BinaryTraceFormat();
+    final ByteBuffer body = concat(format.begin("bus:33"),
+        format.points(first),
+        format.points(second),
+        format.end()
+    );
+
+    Assert.assertEquals(BinaryTraceFormat.VERSION_1, body.get());
+    final byte[] id = new byte[(int) readVarLong(body)];
+    body.get(id);
+    Assert.assertEquals("bus:33", new String(id, StandardCharsets.UTF_8));
+    final List<VehicleData> expected = new ArrayList<>(first);
+    expected.addAll(second);
+    long ts = 0;
+    long lon = 0;
+    long lat = 0;
+    for (final VehicleData point : expected) {
+      ts += unZigZag(readVarLong(body));
+      lon += unZigZag(readVarLong(body));
+      lat += unZigZag(readVarLong(body));
+      Assert.assertEquals(point.getTs(), ts);
+      Assert.assertEquals(Math.round(point.getLon() * 1_000_000d), lon);
+      Assert.assertEquals(Math.round(point.getLat() * 1_000_000d), lat);
+    }
+    Assert.assertFalse(body.hasRemaining());
+  }
+
+  @Test
+  public void jsonSeparatesPointsAcrossChunks() {
+    final JsonTraceFormat format = new JsonTraceFormat();
+    final ByteBuffer body = concat(format.begin("bus\"1"),
+        format.points(Arrays.asList(point(1, 1f, 2f))),
+        format.points(Arrays.asList(point(2, 3f, 4f))),
+        format.end()
+    );
+    Assert.assertEquals("{\"id\":\"bus\\\"1\",\"trace\":[{\"tsMicro\":1,\"lon\":1.0,\"lat\":2.0},"
+        + "{\"tsMicro\":2,\"lon\":3.0,\"lat\":4.0}]}", StandardCharsets.UTF_8.decode(body)
+        .toString());
+  }
+
+  private static VehicleData point(final long ts, final float lon, final float lat) {
+    return new VehicleData(ts, lon, lat, "bus:33", "o1", null, false);
+  }
+
+  private static ByteBuffer concat(final ByteBuffer... buffers) {
+    int size = 0;
+    for (final ByteBuffer buffer : buffers) {
+      size += buffer.remaining();
+    }
+    final ByteBuffer body = ByteBuffer.allocate(size);
+    for (final ByteBuffer buffer : buffers) {
+      body.put(buffer);
+    }
+    body.flip();
+    return body;
+  }
+
+  private static long readVarLong(final ByteBuffer in) {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      final byte b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  private static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
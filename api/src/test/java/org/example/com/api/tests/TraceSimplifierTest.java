@@ -0,0 +1,72 @@
+package org.example.com.api.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import org.example.com.api.TraceSimplifier;
+import org.example.com.data.VehicleData;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TraceSimplifierTest {
+
+  @Test
+  public void disabledKeepsEveryPoint() {
+    final NavigableSet<VehicleData> chunk = line(0, 10, 0);
+    final TraceSimplifier simplifier = new TraceSimplifier(0, 0);
+    Assert.assertFalse(simplifier.isEnabled());
+    Assert.assertSame(chunk, simplifier.apply(chunk));
+  }
+
+  @Test
+  public void stepCarriesAcrossChunks() {
+    final TraceSimplifier simplifier = new TraceSimplifier(0, 25);
+    final List<VehicleData> kept = new ArrayList<>(simplifier.apply(line(0, 4, 0)));
+    kept.addAll(simplifier.apply(line(40, 4, 0)));
+    // points every 10 micros from 0 to 30, then from 40 to 70
+    Assert.assertEquals(3, kept.size());
+    Assert.assertEquals(0, kept.get(0).getTs());
+    Assert.assertEquals(30, kept.get(1).getTs());
+    Assert.assertEquals(60, kept.get(2).getTs());
+  }
+
+  @Test
+  public void dropsPointsWithinTolerance() {
+    // a straight line with a 1 m wiggle and a 50 m spike in the middle, the spike keeps the
+    // points around it as its sides are far from the line
+    final NavigableSet<VehicleData> chunk = line(0, 21, 0);
+    replaceLat(chunk, 50, 0.00001f);
+    replaceLat(chunk, 100, 0.00045f);
+    final Collection<VehicleData> kept = new TraceSimplifier(10, 0).apply(chunk);
+    final List<Long> ts = new ArrayList<>();
+    kept.forEach(point -> ts.add(point.getTs()));
+    Assert.assertEquals(Arrays.asList(0L, 90L, 100L, 110L, 200L), ts);
+    // every kept point is one of the chunk
+    Assert.assertTrue(chunk.containsAll(kept));
+  }
+
+  /**
+   * Points 10 micros and about 11 m apart heading east along the equator.
+   */
+  private static NavigableSet<VehicleData> line(final long fromTs, final int count, final float lat) {
+    final NavigableSet<VehicleData> points = new TreeSet<>();
+    for (int i = 0; i < count; i++) {
+      final long ts = fromTs + i * 10L;
+      points.add(new VehicleData(ts, ts * 0.00001f, lat, "bus:33", "o1", null, false));
+    }
+    return points;
+  }
+
+  private static void replaceLat(
+      final NavigableSet<VehicleData> points, final long ts, final float lat
+  ) {
+    for (final VehicleData point : points) {
+      if (point.getTs() == ts) {
+        point.setLat(lat);
+      }
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package org.example.com.repository;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Host;
+import com.aerospike.client.async.EventPolicy;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+
+public class AerospikeClients {
+
+  public static final int MAX_COMMANDS_IN_PROCESS = 64;
+
+  /**
+   * Client with one event loop per core for the async API. Each loop runs at most {@link
+   * #MAX_COMMANDS_IN_PROCESS} commands, the rest wait in the loop's queue, so in flight requests
+   * are bounded by connections to the server and not by threads.
+   */
+  public static AerospikeClient create(final String host, final int port) {
+    final int loops = Runtime.getRuntime().availableProcessors();
+    final EventPolicy eventPolicy = new EventPolicy();
+    eventPolicy.maxCommandsInProcess = MAX_COMMANDS_IN_PROCESS;
+    final ClientPolicy clientPolicy = new ClientPolicy();
+    clientPolicy.eventLoops = new NioEventLoops(eventPolicy, loops);
+    clientPolicy.asyncMaxConnsPerNode = Math.max(clientPolicy.asyncMaxConnsPerNode,
+        loops * MAX_COMMANDS_IN_PROCESS
+    );
+    return new AerospikeClient(clientPolicy, new Host(host, port));
+  }
+
+}
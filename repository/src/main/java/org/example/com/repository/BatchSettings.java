@@ -0,0 +1,43 @@
+package org.example.com.repository;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.com.repository.data.AerospikeValues;
+
+/**
+ * How {@link Utils#batchGetAsync} splits and sends a batch read, see {@link
+ * Utils#setBatchSettings(BatchSettings)}. Both values have to be positive.
+ */
+@Data
+@NoArgsConstructor
+public class BatchSettings {
+
+  // keys per batch request
+  private int partitionSize = AerospikeValues.MAX_BATCH;
+  // batch requests of a single read in flight at once, and threads reading for clients without
+  // event loops
+  private int parallelism = 2 * Runtime.getRuntime().availableProcessors();
+
+  /**
+   * @throws IllegalArgumentException when a value is not positive
+   */
+  public BatchSettings(final int partitionSize, final int parallelism) {
+    setPartitionSize(partitionSize);
+    setParallelism(parallelism);
+  }
+
+  public void setPartitionSize(final int partitionSize) {
+    if (partitionSize <= 0) {
+      throw new IllegalArgumentException("Batch partition size must be positive, was "
+          + partitionSize);
+    }
+    this.partitionSize = partitionSize;
+  }
+
+  public void setParallelism(final int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Batch parallelism must be positive, was " + parallelism);
+    }
+    this.parallelism = parallelism;
+  }
+}
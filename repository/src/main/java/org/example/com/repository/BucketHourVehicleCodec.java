@@ -0,0 +1,305 @@
+package org.example.com.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.VehiclesRepositoryImpl.BucketHourVehicle;
+
+/**
+ * Versioned binary encoding of {@link BucketHourVehicle}.
+ *
+ * <p>Layout (version 1), every column holds one entry per point in timestamp order:
+ * <pre>
+ *   version            byte
+ *   bucket id          string
+ *   count, stopped     varint
+ *   vehicle dictionary varint size + strings
+ *   operator dict.     varint size + strings
+ *   stop dictionary    varint size + strings
+ *   timestamps         first ts as 8 bytes, then zig-zag varint deltas
+ *   lon, lat           4 byte floats
+ *   vehicle indexes    varint, omitted when the dictionary has at most one entry
+ *   operator indexes   varint, same rule
+ *   stop indexes       varint, same rule
+ *   stopped flags      bitset
+ * </pre>
+ * Strings are written as varint (length + 1) followed by UTF-8 bytes, 0 meaning null.
+ */
+public final class BucketHourVehicleCodec {
+
+  public static final byte VERSION_1 = 1;
+
+  private BucketHourVehicleCodec() {
+  }
+
+  public static byte[] encode(final BucketHourVehicle bucket) {
+    final List<VehicleData> points = new ArrayList<>(bucket.getVehicleData());
+    final int count = points.size();
+    final Dictionary vehicles = new Dictionary();
+    final Dictionary operators = new Dictionary();
+    final Dictionary stops = new Dictionary();
+    final int[] vehicleIdx = new int[count];
+    final int[] operatorIdx = new int[count];
+    final int[] stopIdx = new int[count];
+    for (int i = 0; i < count; i++) {
+      final VehicleData point = points.get(i);
+      vehicleIdx[i] = vehicles.indexOf(point.getVehicleId());
+      operatorIdx[i] = operators.indexOf(point.getOperatorId());
+      stopIdx[i] = stops.indexOf(point.getStopId());
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(32 + count * 12);
+    out.write(VERSION_1);
+    writeString(out, bucket.getId());
+    writeVarInt(out, count);
+    writeVarInt(out, bucket.getStopped());
+    vehicles.writeTo(out);
+    operators.writeTo(out);
+    stops.writeTo(out);
+
+    long previous = 0L;
+    for (int i = 0; i < count; i++) {
+      final long ts = points.get(i).getTs();
+      if (i == 0) {
+        writeLong(out, ts);
+      } else {
+        writeVarLong(out, zigZag(ts - previous));
+      }
+      previous = ts;
+    }
+    for (final VehicleData point : points) {
+      writeInt(out, Float.floatToIntBits(point.getLon()));
+    }
+    for (final VehicleData point : points) {
+      writeInt(out, Float.floatToIntBits(point.getLat()));
+    }
+    writeIndexes(out, vehicles, vehicleIdx);
+    writeIndexes(out, operators, operatorIdx);
+    writeIndexes(out, stops, stopIdx);
+
+    final byte[] stoppedBits = new byte[(count + 7) >>> 3];
+    for (int i = 0; i < count; i++) {
+      if (points.get(i).isStopped()) {
+        stoppedBits[i >>> 3] |= 1 << (i & 7);
+      }
+    }
+    out.write(stoppedBits, 0, stoppedBits.length);
+    return out.toByteArray();
+  }
+
+  public static BucketHourVehicle decode(final byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Decodes from the buffer's position, which is advanced past the bucket.
+   */
+  public static BucketHourVehicle decode(final ByteBuffer in) {
+    final byte version = in.get();
+    if (version != VERSION_1) {
+      throw new IllegalArgumentException("Unsupported bucket encoding version " + version);
+    }
+    final String id = readString(in);
+    final int count = readVarInt(in);
+    final int stopped = readVarInt(in);
+    final String[] vehicles = readDictionary(in);
+    final String[] operators = readDictionary(in);
+    final String[] stops = readDictionary(in);
+
+    final long[] ts = new long[count];
+    for (int i = 0; i < count; i++) {
+      ts[i] = i == 0 ? in.getLong() : ts[i - 1] + unZigZag(readVarLong(in));
+    }
+    final float[] lon = new float[count];
+    for (int i = 0; i < count; i++) {
+      lon[i] = Float.intBitsToFloat(in.getInt());
+    }
+    final float[] lat = new float[count];
+    for (int i = 0; i < count; i++) {
+      lat[i] = Float.intBitsToFloat(in.getInt());
+    }
+    final int[] vehicleIdx = readIndexes(in, vehicles, count);
+    final int[] operatorIdx = readIndexes(in, operators, count);
+    final int[] stopIdx = readIndexes(in, stops, count);
+    final byte[] stoppedBits = new byte[(count + 7) >>> 3];
+    in.get(stoppedBits);
+
+    final TreeSet<VehicleData> vehicleData = new TreeSet<>();
+    for (int i = 0; i < count; i++) {
+      vehicleData.add(new VehicleData(ts[i],
+          lon[i],
+          lat[i],
+          lookup(vehicles, vehicleIdx, i),
+          lookup(operators, operatorIdx, i),
+          lookup(stops, stopIdx, i),
+          (stoppedBits[i >>> 3] & (1 << (i & 7))) != 0
+      ));
+    }
+    return new BucketHourVehicle(id, vehicleData, stopped);
+  }
+
+  /**
+   * Encodes a single point for the append-only layout, where the timestamp is the map key and the
+   * vehicle id is the bucket id.
+   */
+  public static byte[] encodePoint(final VehicleData point) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(24);
+    out.write(VERSION_1);
+    writeInt(out, Float.floatToIntBits(point.getLon()));
+    writeInt(out, Float.floatToIntBits(point.getLat()));
+    out.write(point.isStopped() ? 1 : 0);
+    writeString(out, point.getOperatorId());
+    writeString(out, point.getStopId());
+    return out.toByteArray();
+  }
+
+  public static VehicleData decodePoint(
+      final long ts, final String vehicleId, final byte[] bytes
+  ) {
+    final ByteBuffer in = ByteBuffer.wrap(bytes);
+    final byte version = in.get();
+    if (version != VERSION_1) {
+      throw new IllegalArgumentException("Unsupported point encoding version " + version);
+    }
+    final float lon = Float.intBitsToFloat(in.getInt());
+    final float lat = Float.intBitsToFloat(in.getInt());
+    final boolean stopped = in.get() != 0;
+    final String operatorId = readString(in);
+    final String stopId = readString(in);
+    return new VehicleData(ts, lon, lat, vehicleId, operatorId, stopId, stopped);
+  }
+
+  private static String lookup(final String[] dictionary, final int[] indexes, final int i) {
+    if (dictionary.length == 0) {
+      return null;
+    }
+    return indexes == null ? dictionary[0] : dictionary[indexes[i]];
+  }
+
+  private static void writeIndexes(
+      final ByteArrayOutputStream out, final Dictionary dictionary, final int[] indexes
+  ) {
+    if (dictionary.size() > 1) {
+      for (final int index : indexes) {
+        writeVarInt(out, index);
+      }
+    }
+  }
+
+  private static int[] readIndexes(final ByteBuffer in, final String[] dictionary, final int count) {
+    if (dictionary.length <= 1) {
+      return null;
+    }
+    final int[] indexes = new int[count];
+    for (int i = 0; i < count; i++) {
+      indexes[i] = readVarInt(in);
+    }
+    return indexes;
+  }
+
+  private static String[] readDictionary(final ByteBuffer in) {
+    final String[] values = new String[readVarInt(in)];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = readString(in);
+    }
+    return values;
+  }
+
+  private static void writeString(final ByteArrayOutputStream out, final String s) {
+    if (s == null) {
+      writeVarInt(out, 0);
+      return;
+    }
+    final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(out, bytes.length + 1);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(final ByteBuffer in) {
+    final int length = readVarInt(in) - 1;
+    if (length < 0) {
+      return null;
+    }
+    final String s = new String(in.array(), in.arrayOffset() + in.position(), length,
+        StandardCharsets.UTF_8
+    );
+    in.position(in.position() + length);
+    return s;
+  }
+
+  private static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarInt(final ByteArrayOutputStream out, final int value) {
+    writeVarLong(out, value & 0xFFFFFFFFL);
+  }
+
+  private static void writeVarLong(final ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static int readVarInt(final ByteBuffer in) {
+    return (int) readVarLong(in);
+  }
+
+  private static long readVarLong(final ByteBuffer in) {
+    long value = 0L;
+    int shift = 0;
+    byte b;
+    do {
+      b = in.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  private static void writeInt(final ByteArrayOutputStream out, final int value) {
+    out.write(value >>> 24);
+    out.write(value >>> 16);
+    out.write(value >>> 8);
+    out.write(value);
+  }
+
+  private static void writeLong(final ByteArrayOutputStream out, final long value) {
+    writeInt(out, (int) (value >>> 32));
+    writeInt(out, (int) value);
+  }
+
+  private static final class Dictionary {
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int indexOf(final String value) {
+      return indexes.computeIfAbsent(value, v -> {
+        values.add(v);
+        return values.size() - 1;
+      });
+    }
+
+    int size() {
+      return values.size();
+    }
+
+    void writeTo(final ByteArrayOutputStream out) {
+      writeVarInt(out, values.size());
+      values.forEach(e -> writeString(out, e));
+    }
+  }
+}
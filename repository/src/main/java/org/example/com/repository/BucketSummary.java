@@ -0,0 +1,201 @@
+package org.example.com.repository;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapOrder;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapReturnType;
+import com.aerospike.client.cdt.MapWriteFlags;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.example.com.data.VehicleData;
+import org.example.com.data.utils.DU;
+
+/**
+ * Figures stored next to the points of an hour bucket, enough to tell if a vehicle stayed stopped
+ * without decoding the bucket.
+ *
+ * <p>{@link BucketWriteMode#REWRITE} puts them as computed from the whole bucket,
+ * {@link BucketWriteMode#APPEND} merges them server side: first/last timestamps are single entry
+ * key ordered maps, trimmed to their smallest or greatest key, so appending the same points again
+ * changes nothing. Buckets written before have none, and an append to one of them drops the
+ * summary it would create, see {@link #isMergedOn(Record)}.
+ */
+@Data
+@AllArgsConstructor
+public class BucketSummary {
+
+  static final String FIRST_TS_BIN = "firstTs";
+  static final String LAST_TS_BIN = "lastTs";
+  static final String FIRST_MOVING_BIN = "firstMovingTs";
+  static final String LAST_MOVING_BIN = "lastMovingTs";
+  static final String[] BINS = {FIRST_TS_BIN, LAST_TS_BIN, FIRST_MOVING_BIN, LAST_MOVING_BIN};
+
+  private static final MapPolicy TS_POLICY = new MapPolicy(MapOrder.KEY_ORDERED,
+      MapWriteFlags.DEFAULT
+  );
+
+  private long firstTs;
+  private long lastTs;
+  // null when every point is stopped
+  private Long firstMovingTs;
+  private Long lastMovingTs;
+
+  public static BucketSummary of(final Collection<VehicleData> points) {
+    final BucketSummary summary = new BucketSummary(Long.MAX_VALUE, Long.MIN_VALUE, null, null);
+    for (final VehicleData point : points) {
+      summary.firstTs = Math.min(summary.firstTs, point.getTs());
+      summary.lastTs = Math.max(summary.lastTs, point.getTs());
+      if (!VehiclesRepositoryImpl.isVehicleStopped(point)) {
+        summary.firstMovingTs = summary.firstMovingTs == null ? point.getTs()
+            : Math.min(summary.firstMovingTs, point.getTs());
+        summary.lastMovingTs = summary.lastMovingTs == null ? point.getTs()
+            : Math.max(summary.lastMovingTs, point.getTs());
+      }
+    }
+    return summary;
+  }
+
+  /**
+   * @return empty when the record has no summary, either missing or written before summaries
+   */
+  public static Optional<BucketSummary> fromRecord(final Record record) {
+    if (record == null) {
+      return Optional.empty();
+    }
+    final Long firstTs = firstKey(record.getMap(FIRST_TS_BIN));
+    final Long lastTs = lastKey(record.getMap(LAST_TS_BIN));
+    if (firstTs == null || lastTs == null) {
+      return Optional.empty();
+    }
+    return Optional.of(new BucketSummary(firstTs,
+        lastTs,
+        firstKey(record.getMap(FIRST_MOVING_BIN)),
+        lastKey(record.getMap(LAST_MOVING_BIN))
+    ));
+  }
+
+  /**
+   * Same answer as checking every point of the bucket in [from, to]: true if there is at least
+   * one and all are stopped. Empty when only the points can tell, that is when a moving point may
+   * lie strictly between the edges of the range.
+   */
+  public Optional<Boolean> isStoppedOn(final long from, final long to) {
+    if (to < firstTs || from > lastTs) {
+      return Optional.of(false);
+    }
+    if (from <= firstTs && to >= lastTs) {
+      return Optional.of(firstMovingTs == null);
+    }
+    if (isIn(from, to, firstMovingTs) || isIn(from, to, lastMovingTs)) {
+      return Optional.of(false);
+    }
+    final boolean noMovingInRange = firstMovingTs == null || lastMovingTs < from
+        || firstMovingTs > to;
+    // one edge of the bucket is in the range, so is its point
+    if (noMovingInRange && (from <= firstTs || to >= lastTs)) {
+      return Optional.of(true);
+    }
+    return Optional.empty();
+  }
+
+  Bin[] toBins() {
+    return new Bin[]{tsBin(FIRST_TS_BIN, firstTs), tsBin(LAST_TS_BIN, lastTs),
+        tsBin(FIRST_MOVING_BIN, firstMovingTs), tsBin(LAST_MOVING_BIN, lastMovingTs)};
+  }
+
+  /**
+   * Operations merging this summary of appended points into the stored one, the first reads the
+   * stored first timestamp for {@link #isMergedOn(Record)}.
+   */
+  List<Operation> toAppendOperations() {
+    final List<Operation> operations = new ArrayList<>(9);
+    operations.add(Operation.get(FIRST_TS_BIN));
+    keepFirst(operations, FIRST_TS_BIN, firstTs);
+    keepLast(operations, LAST_TS_BIN, lastTs);
+    if (firstMovingTs != null) {
+      keepFirst(operations, FIRST_MOVING_BIN, firstMovingTs);
+      keepLast(operations, LAST_MOVING_BIN, lastMovingTs);
+    }
+    return operations;
+  }
+
+  /**
+   * @param record result of {@link #toAppendOperations()}, operated with {@link
+   *     WritePolicies#getRespondAllOpsPolicy()}
+   * @return false when the record had no summary before the append although it existed, the
+   *     merged summary then only covers the appended points
+   */
+  public static boolean isMergedOn(final Record record) {
+    return record.generation == 1 || firstResult(record, FIRST_TS_BIN) != null;
+  }
+
+  /**
+   * Removes the summary, buckets without one are read in full.
+   */
+  static Bin[] toNullBins() {
+    final Bin[] bins = new Bin[BINS.length];
+    for (int i = 0; i < BINS.length; i++) {
+      bins[i] = Bin.asNull(BINS[i]);
+    }
+    return bins;
+  }
+
+  /**
+   * @return the result of the first operation on the bin, the results of a bin operated more
+   *     than once are listed in operation order
+   */
+  static Object firstResult(final Record record, final String bin) {
+    final List<?> results = record.getList(bin);
+    return results == null || results.isEmpty() ? null : results.get(0);
+  }
+
+  private static void keepFirst(final List<Operation> operations, final String bin, final long ts) {
+    operations.add(MapOperation.put(TS_POLICY, bin, Value.get(ts), Value.get(0)));
+    operations.add(MapOperation.removeByIndexRange(bin, 1, MapReturnType.NONE));
+  }
+
+  private static void keepLast(final List<Operation> operations, final String bin, final long ts) {
+    operations.add(MapOperation.put(TS_POLICY, bin, Value.get(ts), Value.get(0)));
+    operations.add(MapOperation.removeByIndexRange(bin,
+        -1,
+        1,
+        MapReturnType.NONE | MapReturnType.INVERTED
+    ));
+  }
+
+  private static Bin tsBin(final String bin, final Long ts) {
+    if (ts == null) {
+      return Bin.asNull(bin);
+    }
+    return new Bin(bin, Collections.singletonList(new SimpleEntry<>(ts, 0)), MapOrder.KEY_ORDERED);
+  }
+
+  private static boolean isIn(final long from, final long to, final Long ts) {
+    return ts != null && ts >= from && ts <= to;
+  }
+
+  private static Long firstKey(final Map<?, ?> map) {
+    if (DU.isMapEmptyOrNull(map)) {
+      return null;
+    }
+    return map.keySet().stream().mapToLong(e -> ((Number) e).longValue()).min().getAsLong();
+  }
+
+  private static Long lastKey(final Map<?, ?> map) {
+    if (DU.isMapEmptyOrNull(map)) {
+      return null;
+    }
+    return map.keySet().stream().mapToLong(e -> ((Number) e).longValue()).max().getAsLong();
+  }
+}
@@ -0,0 +1,20 @@
+package org.example.com.repository;
+
+/**
+ * How {@link VehiclesRepositoryImpl} persists points into the hour bucket of a vehicle.
+ */
+public enum BucketWriteMode {
+
+  /**
+   * Reads the whole bucket, adds the point and puts the encoded bucket back. Also compacts any
+   * points that were previously appended.
+   */
+  REWRITE,
+
+  /**
+   * Appends the point to an ordered map bin server side and increments the stopped counter
+   * atomically. Bytes on the wire do not depend on the bucket size nor on the local cache.
+   */
+  APPEND
+
+}
@@ -0,0 +1,55 @@
+package org.example.com.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Byte budgets of the repository caches, entries are weighed by {@link CacheWeighers}, and their
+ * expiry.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheSettings {
+
+  public static final long MB = 1L << 20;
+
+  private long bucketsMaxBytes = 256 * MB;
+  private long vehicleIndexMaxBytes = 64 * MB;
+  private long operatorIndexMaxBytes = 16 * MB;
+  private long operatorMinutesIndexMaxBytes = 16 * MB;
+  private long operatorVehicleIndexMaxBytes = 64 * MB;
+  // bins of BucketSummary read by stopped vehicle queries
+  private long bucketSummariesMaxBytes = 16 * MB;
+  // per vehicle and per operator hour bitmaps, each
+  private long hourPresenceMaxBytes = 16 * MB;
+  // each of the operator and vehicle HourPartials
+  private long hourPartialsMaxBytes = 64 * MB;
+  // direct memory for buckets evicted from the heap cache, 0 disables it
+  private long offHeapBucketsMaxBytes = 0;
+  // see PeriodExpiry
+  private long openPeriodTtlMillis = 30_000;
+  private long closedPeriodGraceMillis = 15 * 60_000;
+  // see MissingKeys, per index cache
+  private long missingKeysMaxSize = 100_000;
+  private long missingKeysTtlMillis = 5 * 60_000;
+
+  public static CacheSettings ofMegabytes(
+      final int buckets,
+      final int vehicleIndex,
+      final int operatorIndex,
+      final int operatorMinutesIndex,
+      final int operatorVehicleIndex,
+      final int offHeapBuckets
+  ) {
+    final CacheSettings settings = new CacheSettings();
+    settings.setBucketsMaxBytes(buckets * MB);
+    settings.setVehicleIndexMaxBytes(vehicleIndex * MB);
+    settings.setOperatorIndexMaxBytes(operatorIndex * MB);
+    settings.setOperatorMinutesIndexMaxBytes(operatorMinutesIndex * MB);
+    settings.setOperatorVehicleIndexMaxBytes(operatorVehicleIndex * MB);
+    settings.setOffHeapBucketsMaxBytes(offHeapBuckets * MB);
+    return settings;
+  }
+}
@@ -0,0 +1,68 @@
+package org.example.com.repository;
+
+import com.aerospike.client.BatchRead;
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.VehiclesRepositoryImpl.BucketHourVehicle;
+
+/**
+ * Estimated heap bytes of cached entries, so caches are bounded by memory instead of by entry
+ * count. Weights are computed once, when an entry is put.
+ */
+public final class CacheWeighers {
+
+  private static final int ENTRY_BYTES = 64;
+  // VehicleData and its TreeSet node, strings are shared through the bucket dictionaries
+  private static final int POINT_BYTES = 96;
+  // TreeSet node, points are shared with the cached buckets
+  private static final int PARTIAL_POINT_BYTES = 40;
+  // map node, key string and boxed value of an index entry, plus 2 bytes per key char
+  private static final int INDEX_ENTRY_BYTES = 80;
+
+  private CacheWeighers() {
+  }
+
+  public static Weigher<String, Optional<BucketHourVehicle>> bucket() {
+    return (key, bucket) -> weight(ENTRY_BYTES + 2L * key.length() + bucket.map(e -> (long) e
+        .getVehicleData()
+        .size() * POINT_BYTES).orElse(0L));
+  }
+
+  public static Weigher<String, NavigableSet<VehicleData>> hourPartial() {
+    return (key, points) -> weight(ENTRY_BYTES + 2L * key.length()
+        + (long) points.size() * PARTIAL_POINT_BYTES);
+  }
+
+  public static Weigher<String, BatchRead> indexRecord(final String binName) {
+    return (key, batchRead) -> {
+      long bytes = ENTRY_BYTES + 2L * key.length();
+      final Map<?, ?> map = batchRead.record == null ? null : batchRead.record.getMap(binName);
+      if (map != null) {
+        for (final Object entry : map.keySet()) {
+          bytes += INDEX_ENTRY_BYTES + 2L * entry.toString().length();
+        }
+      }
+      return weight(bytes);
+    };
+  }
+
+  /**
+   * A record of the {@link BucketSummary#BINS}, single entry maps.
+   */
+  public static Weigher<String, BatchRead> bucketSummary() {
+    return (key, batchRead) -> weight(ENTRY_BYTES + 2L * key.length()
+        + (long) BucketSummary.BINS.length * INDEX_ENTRY_BYTES);
+  }
+
+  public static Weigher<String, long[]> hourBitmap() {
+    return (key, words) -> weight(ENTRY_BYTES + 2L * key.length()
+        + (long) words.length * Long.BYTES);
+  }
+
+  private static int weight(final long bytes) {
+    return (int) Math.min(Integer.MAX_VALUE, bytes);
+  }
+}
@@ -9,20 +9,20 @@ import com.aerospike.client.cdt.MapOperation;
 import com.aerospike.client.cdt.MapPolicy;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.example.com.data.VehicleData;
 import org.example.com.data.utils.DU;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 @SuppressWarnings("ALL")
@@ -35,17 +35,28 @@ public class DateByOperatorPartForVehicleImpl implements IDateByOperatorPartForV
 
 
   private final Cache<String, BatchRead> cache;
+  private final MissingKeys missingKeys;
+  private final InFlightReads<BatchRead> inFlight = new InFlightReads<>();
+  private final WrittenKeysFilter writtenKeys = new WrittenKeysFilter();
 
   public DateByOperatorPartForVehicleImpl(final String host, final int port) {
-    this(new AerospikeClient(host, port));
+    this(AerospikeClients.create(host, port));
   }
 
   public DateByOperatorPartForVehicleImpl(AerospikeClient client) {
+    this(client, new CacheSettings());
+  }
+
+  public DateByOperatorPartForVehicleImpl(
+      final AerospikeClient client, final CacheSettings cacheSettings
+  ) {
     this.client = client;
+    this.missingKeys = new MissingKeys(TimeUnit.HOURS, cacheSettings);
     this.cache = Caffeine.newBuilder()
-        .maximumSize(1_000)
-        .expireAfterWrite(5, TimeUnit.MINUTES)
-        .expireAfterAccess(5, TimeUnit.MINUTES)
+        .recordStats()
+        .maximumWeight(cacheSettings.getOperatorVehicleIndexMaxBytes())
+        .weigher(CacheWeighers.indexRecord(BIN_NAME))
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
         .build();
 
   }
@@ -55,40 +66,38 @@ public class DateByOperatorPartForVehicleImpl implements IDateByOperatorPartForV
   public PartedKeyValues getVehiclesOnDateOperatorPart(
       final long from, final long to, final String operator
   ) {
-    final List<String> collect = Utils.getIntervalsInHours(from, to)
+    return Utils.join(getVehiclesOnDateOperatorPartAsync(from, to, operator));
+  }
+
+  @Override
+  public CompletableFuture<PartedKeyValues> getVehiclesOnDateOperatorPartAsync(
+      final long from, final long to, final String operator
+  ) {
+    return readHours(from, to, Utils.getIntervalsInHours(from, to)
         .mapToObj(hours -> Utils.createTimedKey(hours, operator))
-        .collect(Collectors.toList());
-
-    final TreeMap<Integer, List<String>> integers = new TreeMap<>();
-    final Map<String, IntList> timesByOperator = new HashMap<>();
-    Utils.doBatchReadWithCache(this.client, cache, NAMESPACE, SETNAME, collect, batchRead -> {
-      final Map<?, ?> map = Optional.ofNullable(batchRead.record)
-          .map(e -> e.getMap(BIN_NAME))
-          .orElse(Collections.emptyMap());
-      if (!DU.isMapEmptyOrNull(map)) {
-        map.keySet()
-            .stream()
-            .map(e -> Utils.parseTimedKey(e.toString()))
-            .filter(e -> e.isSuccess())
-            .map(e -> e.get())
-            .filter(e -> Utils.isContained(from, to, e._1))
-            .forEach(e -> {
-              DU.appendToCollection(integers, e._1, e._2, () -> new ArrayList<>());
-              DU.appendToCollection(timesByOperator, e._2, e._1, () -> new IntArrayList());
-            });
-      }
-    });
-    final Iterator<Entry<Integer, List<String>>> iterator = integers.entrySet().iterator();
-    final IntList intList = new IntArrayList(integers.size());
-    final List<List<String>> values = new ArrayList<List<String>>(integers.size());
-    while (iterator.hasNext()) {
-      Entry<Integer, List<String>> next = iterator.next();
-      List<String> value = next.getValue();
-      Integer key = next.getKey();
-      intList.add(key);
-      values.add(value);
-    }
-    return new PartedKeyValues(intList, values, timesByOperator);
+        .collect(Collectors.toList()));
+  }
+
+  @Override
+  public CompletableFuture<PartedKeyValues> getVehiclesOnDateOperatorPartAsync(
+      final long from, final long to, final String operator, final IntList hours
+  ) {
+    return readHours(from, to, hours.stream()
+        .map(hour -> Utils.createTimedKey(hour, operator))
+        .collect(Collectors.toList()));
+  }
+
+  private CompletableFuture<PartedKeyValues> readHours(
+      final long from, final long to, final List<String> collect
+  ) {
+    return Utils.doBatchReadWithCacheAsync(this.client,
+        cache,
+        missingKeys,
+        inFlight,
+        NAMESPACE,
+        SETNAME,
+        collect
+    ).thenApply(batchReads -> Utils.toPartedKeyValues(from, to, BIN_NAME, batchReads));
   }
 
   @Override
@@ -98,12 +107,53 @@ public class DateByOperatorPartForVehicleImpl implements IDateByOperatorPartForV
     final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
     final String keyMapBin = Utils.createTimedKey(hours, vehicleId);
     final String keyRecord = Utils.createTimedKey(hours, operator);
+    final String writtenKey = Utils.createOperatorVehicleKey(operator, vehicleId);
+    if (writtenKeys.isWritten(hours, writtenKey)) {
+      return;
+    }
     final Operation put = MapOperation.put(MapPolicy.Default,
         BIN_NAME,
         Value.get(keyMapBin),
         Value.get(0)
     );
     client.operate(WritePolicies.getSendKeyPolicy(), new Key(NAMESPACE, SETNAME, keyRecord), put);
+    Utils.addToCachedMap(cache,
+        missingKeys,
+        keyRecord,
+        BIN_NAME,
+        Collections.singletonList(keyMapBin)
+    );
+    writtenKeys.markWritten(hours, writtenKey);
+  }
+
+  @Override
+  public void writeVehiclesOnDatePartOperator(final Collection<VehicleData> vehicleData) {
+    final Map<String, Set<String>> entriesByRecord = new HashMap<>();
+    final Map<Long, Set<String>> entriesByHour = new HashMap<>();
+    for (final VehicleData data : vehicleData) {
+      final long hours = TimeUnit.MICROSECONDS.toHours(data.getTs());
+      final String writtenKey = Utils.createOperatorVehicleKey(data.getOperatorId(),
+          data.getVehicleId()
+      );
+      if (!writtenKeys.isWritten(hours, writtenKey)) {
+        DU.appendToCollection(entriesByRecord,
+            Utils.createTimedKey(hours, data.getOperatorId()),
+            Utils.createTimedKey(hours, data.getVehicleId()),
+            () -> new HashSet<>()
+        );
+        DU.appendToCollection(entriesByHour, hours, writtenKey, () -> new HashSet<>());
+      }
+    }
+    Utils.writeMapKeys(client,
+        WritePolicies.getSendKeyPolicy(),
+        NAMESPACE,
+        SETNAME,
+        BIN_NAME,
+        entriesByRecord,
+        cache,
+        missingKeys
+    );
+    entriesByHour.forEach(writtenKeys::markWritten);
   }
 
   @Override
@@ -111,16 +161,35 @@ public class DateByOperatorPartForVehicleImpl implements IDateByOperatorPartForV
     final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
     final String keyRecord = Utils.createTimedKey(hours, operator);
     this.cache.asMap().remove(keyRecord);
+    missingKeys.invalidate(keyRecord);
   }
 
   @Override
   public void deleteAllData() {
     Utils.deleteAll(client, NAMESPACE, SETNAME);
+    writtenKeys.clear();
   }
 
   @Override
   public void invalidateAllCache() {
     cache.asMap().clear();
+    missingKeys.clear();
+    writtenKeys.clear();
+  }
+
+  @Override
+  public long getSkippedWrites() {
+    return writtenKeys.getSkipped();
+  }
+
+  @Override
+  public List<CacheStatistics> getCacheStatistics() {
+    return Collections.singletonList(CacheStatistics.of(SETNAME, cache));
+  }
+
+  @Override
+  public long getSavedMissingReads() {
+    return missingKeys.getSaved();
   }
 
 }
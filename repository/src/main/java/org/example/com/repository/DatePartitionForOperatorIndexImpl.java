@@ -11,18 +11,21 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.example.com.data.VehicleData;
 import org.example.com.data.utils.DU;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 @SuppressWarnings("ALL")
@@ -31,88 +34,220 @@ public class DatePartitionForOperatorIndexImpl implements IDatePartitionForOpera
   private final AerospikeClient client;
   public final static String NAMESPACE = "test";
   public final static String SETNAME = "datepart";
+  public final static String MINUTES_SETNAME = "dateminutepart";
   private final static String BIN_NAME = "data";
 
   private final Cache<String, BatchRead> cache;
+  private final MissingKeys missingKeys;
+  private final InFlightReads<BatchRead> inFlight = new InFlightReads<>();
+  private final Cache<String, BatchRead> minutesCache;
+  private final MissingKeys missingMinuteKeys;
+  private final InFlightReads<BatchRead> minutesInFlight = new InFlightReads<>();
+  private final WrittenKeysFilter writtenKeys = new WrittenKeysFilter();
 
   public DatePartitionForOperatorIndexImpl(final String host, final int port) {
-    this(new AerospikeClient(host, port));
+    this(AerospikeClients.create(host, port));
   }
 
   public DatePartitionForOperatorIndexImpl(AerospikeClient client) {
+    this(client, new CacheSettings());
+  }
+
+  public DatePartitionForOperatorIndexImpl(
+      final AerospikeClient client, final CacheSettings cacheSettings
+  ) {
     this.client = client;
+    this.missingKeys = new MissingKeys(TimeUnit.DAYS, cacheSettings);
+    this.missingMinuteKeys = new MissingKeys(TimeUnit.HOURS, cacheSettings);
     this.cache = Caffeine.newBuilder()
-        .maximumSize(1_000)
-        .expireAfterWrite(5, TimeUnit.MINUTES)
-        .expireAfterAccess(5, TimeUnit.MINUTES)
+        .recordStats()
+        .maximumWeight(cacheSettings.getOperatorIndexMaxBytes())
+        .weigher(CacheWeighers.indexRecord(BIN_NAME))
+        .expireAfter(new PeriodExpiry<>(TimeUnit.DAYS, cacheSettings))
+        .build();
+    this.minutesCache = Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(cacheSettings.getOperatorMinutesIndexMaxBytes())
+        .weigher(CacheWeighers.indexRecord(BIN_NAME))
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
         .build();
   }
 
   @Override
   public PartedKeyValues getOperatorsOnDatePart(final long from, final long to) {
+    return Utils.join(getOperatorsOnDatePartAsync(from, to));
+  }
+
+  @Override
+  public CompletableFuture<PartedKeyValues> getOperatorsOnDatePartAsync(final long from, final long to) {
     final List<String> collect = Utils.getIntervalsInDays(from, to)
         .mapToObj(e -> e + "")
         .collect(Collectors.toList());
+    return Utils.doBatchReadWithCacheAsync(this.client,
+        cache,
+        missingKeys,
+        inFlight,
+        NAMESPACE,
+        SETNAME,
+        collect
+    ).thenApply(batchReads -> Utils.toPartedKeyValues(from, to, BIN_NAME, batchReads));
+  }
 
-    final TreeMap<Integer, List<String>> integers = new TreeMap<>();
-    final Map<String, IntList> timesByOperator = new HashMap<>();
-    Utils.doBatchReadWithCache(this.client, cache, NAMESPACE, SETNAME, collect, batchRead -> {
-      final Map<?, ?> map = Optional.ofNullable(batchRead.record)
-          .map(e -> e.getMap(BIN_NAME))
-          .orElse(Collections.emptyMap());
-      if (!DU.isMapEmptyOrNull(map)) {
-        map.keySet()
-            .stream()
-            .map(e -> Utils.parseTimedKey(e.toString()))
-            .filter(e -> e.isSuccess())
-            .map(e -> e.get())
-            .filter(e -> Utils.isContained(from, to, e._1))
-            .forEach(e -> {
-              DU.appendToCollection(integers, e._1, e._2, () -> new ArrayList<>());
-              DU.appendToCollection(timesByOperator, e._2, e._1, () -> new IntArrayList());
-            });
+  @Override
+  public CompletableFuture<Map<String, IntList>> getOperatorMinutesAsync(final int hour) {
+    return Utils.doBatchReadWithCacheAsync(this.client,
+        minutesCache,
+        missingMinuteKeys,
+        minutesInFlight,
+        NAMESPACE,
+        MINUTES_SETNAME,
+        Collections.singletonList(hour + "")
+    ).thenApply(batchReads -> {
+      final Map<String, IntList> minutesByOperator = new HashMap<>();
+      for (final BatchRead batchRead : batchReads) {
+        final Map<?, ?> map = Optional.ofNullable(batchRead.record)
+            .map(e -> e.getMap(BIN_NAME))
+            .orElse(Collections.emptyMap());
+        for (final Object key : map.keySet()) {
+          final String minuteKey = key.toString();
+          final int separator = minuteKey.indexOf(':');
+          final long minutes = Utils.parseTimedKeyTime(minuteKey, separator);
+          if (minutes != Utils.INVALID_TIME) {
+            DU.appendToCollection(minutesByOperator,
+                minuteKey.substring(separator + 1),
+                (int) minutes,
+                () -> new IntArrayList()
+            );
+          }
+        }
       }
+      return minutesByOperator;
     });
-
-    final Iterator<Entry<Integer, List<String>>> iterator = integers.entrySet().iterator();
-    final IntList intList = new IntArrayList(integers.size());
-    final List<List<String>> values = new ArrayList<List<String>>(integers.size());
-    while (iterator.hasNext()) {
-      Entry<Integer, List<String>> next = iterator.next();
-      List<String> value = next.getValue();
-      Integer key = next.getKey();
-      intList.add(key);
-      values.add(value);
-    }
-    return new PartedKeyValues(intList, values, timesByOperator);
   }
 
   @Override
   public void writeOperatorsOnDatePart(final long timestamp, final String operator) {
     final long days = TimeUnit.MICROSECONDS.toDays(timestamp);
     final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
+    final long minutes = TimeUnit.MICROSECONDS.toMinutes(timestamp);
     final String timedKey = Utils.createTimedKey(hours, operator);
-    final Operation put = MapOperation.put(MapPolicy.Default,
+    if (!writtenKeys.isWritten(hours, timedKey)) {
+      final Operation put = MapOperation.put(MapPolicy.Default,
+          BIN_NAME,
+          Value.get(timedKey),
+          Value.get(0)
+      );
+      client.operate(WritePolicies.getSendKeyPolicy(), new Key(NAMESPACE, SETNAME, days + ""), put);
+      Utils.addToCachedMap(cache,
+          missingKeys,
+          days + "",
+          BIN_NAME,
+          Collections.singletonList(timedKey)
+      );
+      writtenKeys.markWritten(hours, timedKey);
+    }
+    final String minuteKey = Utils.createTimedKey(minutes, operator);
+    if (!writtenKeys.isWritten(hours, minuteKey)) {
+      final Operation put = MapOperation.put(MapPolicy.Default,
+          BIN_NAME,
+          Value.get(minuteKey),
+          Value.get(0)
+      );
+      client.operate(WritePolicies.getSendKeyPolicy(),
+          new Key(NAMESPACE, MINUTES_SETNAME, hours + ""),
+          put
+      );
+      Utils.addToCachedMap(minutesCache,
+          missingMinuteKeys,
+          hours + "",
+          BIN_NAME,
+          Collections.singletonList(minuteKey)
+      );
+      writtenKeys.markWritten(hours, minuteKey);
+    }
+  }
+
+  @Override
+  public void writeOperatorsOnDatePart(final Collection<VehicleData> vehicleData) {
+    final Map<String, Set<String>> entriesByRecord = new HashMap<>();
+    final Map<String, Set<String>> minuteEntriesByRecord = new HashMap<>();
+    final Map<Long, Set<String>> entriesByHour = new HashMap<>();
+    for (final VehicleData data : vehicleData) {
+      final long days = TimeUnit.MICROSECONDS.toDays(data.getTs());
+      final long hours = TimeUnit.MICROSECONDS.toHours(data.getTs());
+      final long minutes = TimeUnit.MICROSECONDS.toMinutes(data.getTs());
+      final String timedKey = Utils.createTimedKey(hours, data.getOperatorId());
+      if (!writtenKeys.isWritten(hours, timedKey)) {
+        DU.appendToCollection(entriesByRecord, days + "", timedKey, () -> new HashSet<>());
+        DU.appendToCollection(entriesByHour, hours, timedKey, () -> new HashSet<>());
+      }
+      final String minuteKey = Utils.createTimedKey(minutes, data.getOperatorId());
+      if (!writtenKeys.isWritten(hours, minuteKey)) {
+        DU.appendToCollection(minuteEntriesByRecord, hours + "", minuteKey, () -> new HashSet<>());
+        DU.appendToCollection(entriesByHour, hours, minuteKey, () -> new HashSet<>());
+      }
+    }
+    Utils.writeMapKeys(client,
+        WritePolicies.getSendKeyPolicy(),
+        NAMESPACE,
+        SETNAME,
+        BIN_NAME,
+        entriesByRecord,
+        cache,
+        missingKeys
+    );
+    Utils.writeMapKeys(client,
+        WritePolicies.getSendKeyPolicy(),
+        NAMESPACE,
+        MINUTES_SETNAME,
         BIN_NAME,
-        Value.get(timedKey),
-        Value.get(0)
+        minuteEntriesByRecord,
+        minutesCache,
+        missingMinuteKeys
     );
-    client.operate(WritePolicies.getSendKeyPolicy(), new Key(NAMESPACE, SETNAME, days + ""), put);
+    entriesByHour.forEach(writtenKeys::markWritten);
   }
 
   @Override
   public void invalidateCache(final long timestamp) {
     final long days = TimeUnit.MICROSECONDS.toDays(timestamp);
+    final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
     cache.asMap().remove(days + "");
+    minutesCache.asMap().remove(hours + "");
+    missingKeys.invalidate(days + "");
+    missingMinuteKeys.invalidate(hours + "");
   }
 
   @Override
   public void deleteAllData() {
     Utils.deleteAll(client, NAMESPACE, SETNAME);
+    Utils.deleteAll(client, NAMESPACE, MINUTES_SETNAME);
+    writtenKeys.clear();
   }
 
   @Override
   public void invalidateAllCache() {
     cache.asMap().clear();
+    minutesCache.asMap().clear();
+    missingKeys.clear();
+    missingMinuteKeys.clear();
+    writtenKeys.clear();
+  }
+
+  @Override
+  public long getSkippedWrites() {
+    return writtenKeys.getSkipped();
+  }
+
+  @Override
+  public List<CacheStatistics> getCacheStatistics() {
+    return Arrays.asList(CacheStatistics.of(SETNAME, cache),
+        CacheStatistics.of(MINUTES_SETNAME, minutesCache)
+    );
+  }
+
+  @Override
+  public long getSavedMissingReads() {
+    return missingKeys.getSaved() + missingMinuteKeys.getSaved();
   }
 }
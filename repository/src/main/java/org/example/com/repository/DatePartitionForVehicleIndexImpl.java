@@ -9,20 +9,19 @@ import com.aerospike.client.cdt.MapOperation;
 import com.aerospike.client.cdt.MapPolicy;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.example.com.data.VehicleData;
 import org.example.com.data.utils.DU;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 @SuppressWarnings("ALL")
@@ -35,85 +34,130 @@ public class DatePartitionForVehicleIndexImpl implements IDatePartitionForVehicl
 
 
   private final Cache<String, BatchRead> cache;
+  private final MissingKeys missingKeys;
+  private final InFlightReads<BatchRead> inFlight = new InFlightReads<>();
+  private final WrittenKeysFilter writtenKeys = new WrittenKeysFilter();
 
   public DatePartitionForVehicleIndexImpl(final String host, final int port) {
-    this(new AerospikeClient(host, port));
+    this(AerospikeClients.create(host, port));
   }
 
   public DatePartitionForVehicleIndexImpl(AerospikeClient client) {
+    this(client, new CacheSettings());
+  }
+
+  public DatePartitionForVehicleIndexImpl(
+      final AerospikeClient client, final CacheSettings cacheSettings
+  ) {
     this.client = client;
+    this.missingKeys = new MissingKeys(TimeUnit.HOURS, cacheSettings);
     this.cache = Caffeine.newBuilder()
-        .maximumSize(100_000)
-        .expireAfterWrite(5, TimeUnit.MINUTES)
-        .expireAfterAccess(5, TimeUnit.MINUTES)
+        .recordStats()
+        .maximumWeight(cacheSettings.getVehicleIndexMaxBytes())
+        .weigher(CacheWeighers.indexRecord(BIN_NAME))
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
         .build();
   }
 
   @Override
   public PartedKeyValues getVehiclesOnDatePart(final long from, final long to) {
+    return Utils.join(getVehiclesOnDatePartAsync(from, to));
+  }
+
+  @Override
+  public CompletableFuture<PartedKeyValues> getVehiclesOnDatePartAsync(final long from, final long to) {
     final List<String> collect = Utils.getIntervalsInHours(from, to)
         .mapToObj(e -> e + "")
         .collect(Collectors.toList());
-    final TreeMap<Integer, List<String>> integers = new TreeMap<>();
-    final Map<String, IntList> timesByOperator = new HashMap<>();
-
-    Utils.doBatchReadWithCache(this.client, cache, NAMESPACE, SETNAME, collect, batchRead -> {
-      final Map<?, ?> map = Optional.ofNullable(batchRead.record)
-          .map(e -> e.getMap(BIN_NAME))
-          .orElse(Collections.emptyMap());
-      if (!DU.isMapEmptyOrNull(map)) {
-        map.keySet()
-            .stream()
-            .map(e -> Utils.parseTimedKey(e.toString()))
-            .filter(e -> e.isSuccess())
-            .map(e -> e.get())
-            .filter(e -> Utils.isContained(from, to, e._1))
-            .forEach(e -> {
-              DU.appendToCollection(integers, e._1, e._2, () -> new ArrayList<>());
-              DU.appendToCollection(timesByOperator, e._2, e._1, () -> new IntArrayList());
-            });
-      }
-    });
-
-    final Iterator<Entry<Integer, List<String>>> iterator = integers.entrySet().iterator();
-    final IntList intList = new IntArrayList(integers.size());
-    final List<List<String>> values = new ArrayList<List<String>>(integers.size());
-    while (iterator.hasNext()) {
-      Entry<Integer, List<String>> next = iterator.next();
-      List<String> value = next.getValue();
-      Integer key = next.getKey();
-      intList.add(key);
-      values.add(value);
-    }
-    return new PartedKeyValues(intList, values, timesByOperator);
+    return Utils.doBatchReadWithCacheAsync(this.client,
+        cache,
+        missingKeys,
+        inFlight,
+        NAMESPACE,
+        SETNAME,
+        collect
+    ).thenApply(batchReads -> Utils.toPartedKeyValues(from, to, BIN_NAME, batchReads));
   }
 
   @Override
   public void writeVehicleOnDatePart(final long timestamp, final String vehicle) {
     final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
     final String timedKey = Utils.createTimedKey(hours, vehicle);
+    if (writtenKeys.isWritten(hours, timedKey)) {
+      return;
+    }
     final Operation put = MapOperation.put(MapPolicy.Default,
         BIN_NAME,
         Value.get(timedKey),
         Value.get(0)
     );
     client.operate(null, new Key(NAMESPACE, SETNAME, hours + ""), put);
+    Utils.addToCachedMap(cache,
+        missingKeys,
+        hours + "",
+        BIN_NAME,
+        Collections.singletonList(timedKey)
+    );
+    writtenKeys.markWritten(hours, timedKey);
+  }
+
+  @Override
+  public void writeVehiclesOnDatePart(final Collection<VehicleData> vehicleData) {
+    final Map<String, Set<String>> entriesByRecord = new HashMap<>();
+    for (final VehicleData data : vehicleData) {
+      final long hours = TimeUnit.MICROSECONDS.toHours(data.getTs());
+      final String timedKey = Utils.createTimedKey(hours, data.getVehicleId());
+      if (!writtenKeys.isWritten(hours, timedKey)) {
+        DU.appendToCollection(entriesByRecord, hours + "", timedKey, () -> new HashSet<>());
+      }
+    }
+    Utils.writeMapKeys(client,
+        null,
+        NAMESPACE,
+        SETNAME,
+        BIN_NAME,
+        entriesByRecord,
+        cache,
+        missingKeys
+    );
+    entriesByRecord.forEach((hours, timedKeys) -> writtenKeys.markWritten(Long.parseLong(hours),
+        timedKeys
+    ));
   }
 
   @Override
   public void invalidateCache(final long timestamp) {
     final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
     cache.asMap().remove(hours + "");
+    missingKeys.invalidate(hours + "");
   }
 
   @Override
   public void deleteAllData() {
     Utils.deleteAll(client, NAMESPACE, SETNAME);
+    writtenKeys.clear();
   }
 
   @Override
   public void invalidateAllCache() {
     cache.asMap().clear();
+    missingKeys.clear();
+    writtenKeys.clear();
+  }
+
+  @Override
+  public long getSkippedWrites() {
+    return writtenKeys.getSkipped();
+  }
+
+  @Override
+  public List<CacheStatistics> getCacheStatistics() {
+    return Collections.singletonList(CacheStatistics.of(SETNAME, cache));
+  }
+
+  @Override
+  public long getSavedMissingReads() {
+    return missingKeys.getSaved();
   }
 
 }
@@ -0,0 +1,149 @@
+package org.example.com.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.CacheStatistics;
+
+/**
+ * Points of a key, an operator or a vehicle, cached per whole hour.
+ *
+ * <p>A query is split in the hours it touches: hours already cached are taken as they are, the
+ * missing ones are computed with a single query spanning them and cached, then the hours are
+ * concatenated and only the first and last are trimmed to the range. A window sliding forward
+ * by a few seconds computes nothing but the current hour once its short ttl ran out, see {@link
+ * PeriodExpiry}.
+ *
+ * <p>A write invalidating an hour while it is computed would otherwise see the points read before
+ * it cached afterwards, for good once the hour is closed. Invalidations bump a write stamp of the
+ * hour, a computed hour is only cached if its stamp did not change meanwhile. Stamps are striped,
+ * an unrelated write may skip caching an hour, never the reverse.
+ */
+public class HourPartials {
+
+  private static final long HOUR_MICROS = TimeUnit.HOURS.toMicros(1);
+  // longer ranges are computed as a whole, without caching
+  public static final int MAX_HOURS = 31 * 24;
+  private static final int STAMP_STRIPES = 1024;
+
+  private final Cache<String, NavigableSet<VehicleData>> cache;
+  private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+
+  public HourPartials(final long maxBytes, final CacheSettings cacheSettings) {
+    this.cache = Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(maxBytes)
+        .weigher(CacheWeighers.hourPartial())
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
+        .build();
+  }
+
+  /**
+   * @param compute points of the key in [from, to], called at most once per call
+   */
+  public CompletableFuture<NavigableSet<VehicleData>> get(
+      final long from,
+      final long to,
+      final String key,
+      final BiFunction<Long, Long, CompletableFuture<NavigableSet<VehicleData>>> compute
+  ) {
+    final int firstHour = (int) TimeUnit.MICROSECONDS.toHours(from);
+    final int lastHour = (int) TimeUnit.MICROSECONDS.toHours(to);
+    if (to < from || lastHour - firstHour >= MAX_HOURS) {
+      return compute.apply(from, to);
+    }
+    final NavigableSet<VehicleData>[] partials = newPartials(lastHour - firstHour + 1);
+    final IntList missing = new IntArrayList();
+    for (int hour = firstHour; hour <= lastHour; hour++) {
+      partials[hour - firstHour] = cache.getIfPresent(Utils.createTimedKey(hour, key));
+      if (partials[hour - firstHour] == null) {
+        missing.add(hour);
+      }
+    }
+    if (missing.isEmpty()) {
+      return CompletableFuture.completedFuture(merge(from, to, partials));
+    }
+    final int firstMissing = missing.getInt(0);
+    final int lastMissing = missing.getInt(missing.size() - 1);
+    final long[] stamps = new long[lastMissing - firstMissing + 1];
+    for (int hour = firstMissing; hour <= lastMissing; hour++) {
+      stamps[hour - firstMissing] = writeStamps.get(stripe(Utils.createTimedKey(hour, key)));
+    }
+    return compute.apply(TimeUnit.HOURS.toMicros(firstMissing),
+        TimeUnit.HOURS.toMicros(lastMissing) + HOUR_MICROS - 1L
+    ).thenApply(points -> {
+      for (int hour = firstMissing; hour <= lastMissing; hour++) {
+        final long hourStart = TimeUnit.HOURS.toMicros(hour);
+        final NavigableSet<VehicleData> partial = Collections.unmodifiableNavigableSet(
+            new TreeSet<>(slice(points, hourStart, hourStart + HOUR_MICROS - 1L)));
+        final long stamp = stamps[hour - firstMissing];
+        // atomic with invalidate, which bumps the stamp first
+        cache.asMap().compute(Utils.createTimedKey(hour, key),
+            (timedKey, cached) -> writeStamps.get(stripe(timedKey)) == stamp ? partial : cached
+        );
+        partials[hour - firstHour] = partial;
+      }
+      return merge(from, to, partials);
+    });
+  }
+
+  public void invalidate(final long hour, final String key) {
+    final String timedKey = Utils.createTimedKey(hour, key);
+    writeStamps.incrementAndGet(stripe(timedKey));
+    cache.invalidate(timedKey);
+  }
+
+  public CacheStatistics getStatistics(final String name) {
+    return CacheStatistics.of(name, cache);
+  }
+
+  public void clear() {
+    cache.invalidateAll();
+  }
+
+  private static NavigableSet<VehicleData> merge(
+      final long from, final long to, final NavigableSet<VehicleData>[] partials
+  ) {
+    final TreeSet<VehicleData> merged = new TreeSet<>();
+    for (int i = 0; i < partials.length; i++) {
+      final boolean edge = i == 0 || i == partials.length - 1;
+      merged.addAll(edge ? slice(partials[i], from, to) : partials[i]);
+    }
+    return merged;
+  }
+
+  /**
+   * @return the points in [from, to], a view of {@code points}
+   */
+  static NavigableSet<VehicleData> slice(
+      final NavigableSet<VehicleData> points, final long from, final long to
+  ) {
+    // a null vehicle id sorts before any other point of the same timestamp
+    final VehicleData lower = new VehicleData();
+    lower.setTs(from);
+    if (to == Long.MAX_VALUE) {
+      return points.tailSet(lower, true);
+    }
+    final VehicleData upper = new VehicleData();
+    upper.setTs(to + 1);
+    return points.subSet(lower, true, upper, false);
+  }
+
+  private static int stripe(final String timedKey) {
+    return Math.floorMod(timedKey.hashCode(), STAMP_STRIPES);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static NavigableSet<VehicleData>[] newPartials(final int hours) {
+    return (NavigableSet<VehicleData>[]) new NavigableSet<?>[hours];
+  }
+}
@@ -0,0 +1,348 @@
+package org.example.com.repository;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.operation.BitOperation;
+import com.aerospike.client.operation.BitPolicy;
+import com.aerospike.client.operation.BitResizeFlags;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.example.com.data.VehicleData;
+import org.example.com.data.utils.DU;
+import org.example.com.repository.data.CacheStatistics;
+
+/**
+ * One bitmap record per key and page of {@link #PAGE_HOURS} hours, about a month, with a bit set
+ * for every hour the key has points in. A query reads one small record per page it spans and then
+ * only the hours that exist, instead of probing every hour or reading a fleet wide index.
+ *
+ * <p>Records are keyed "page:key" and hold {@link #PAGE_BYTES} bytes, hour offsets within the
+ * page ordered from the most significant bit of the first byte as Aerospike bit operations do.
+ * Writes OR the new hours in, so concurrent writers never lose each other's bits.
+ *
+ * <p>Points written before this index existed are only in the older indexes, so a page is trusted
+ * once it is {@link #COMPLETE_BIN complete}: the first read of a page without that bin asks the
+ * hours of the whole page to a fallback, ORs them in and marks the page complete, see {@link
+ * #getHoursAsync(long, long, String, BiFunction)}. Only complete pages are cached. A page without
+ * a record is remembered by {@link MissingKeys} for a short ttl in case another process writes it.
+ */
+@SuppressWarnings("ALL")
+public class HourPresenceIndexImpl implements IHourPresenceIndex {
+
+  final static String NAMESPACE = "test";
+  public final static String VEHICLES_SETNAME = "vehiclehourpart";
+  public final static String OPERATORS_SETNAME = "operatorhourpart";
+  private final static String BIN_NAME = "hours";
+  // set once the hours of the older indexes are in the page
+  private final static String COMPLETE_BIN = "complete";
+  public final static int PAGE_HOURS = 32 * 24;
+  public final static int PAGE_BYTES = PAGE_HOURS / Byte.SIZE;
+
+  private final AerospikeClient client;
+  private final String setName;
+  private final Cache<String, long[]> cache;
+  private final MissingKeys missingKeys;
+  private final InFlightReads<long[]> inFlight = new InFlightReads<>();
+  private final WrittenKeysFilter writtenKeys = new WrittenKeysFilter();
+
+  public HourPresenceIndexImpl(
+      final AerospikeClient client, final String setName, final CacheSettings cacheSettings
+  ) {
+    this.client = client;
+    this.setName = setName;
+    this.cache = Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(cacheSettings.getHourPresenceMaxBytes())
+        .weigher(CacheWeighers.hourBitmap())
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS.toMillis(PAGE_HOURS), cacheSettings))
+        .build();
+    this.missingKeys = new MissingKeys(TimeUnit.HOURS.toMillis(PAGE_HOURS), cacheSettings);
+  }
+
+  @Override
+  public IntList getHours(
+      final long from,
+      final long to,
+      final String key,
+      final BiFunction<Long, Long, CompletableFuture<IntList>> fallback
+  ) {
+    return Utils.join(getHoursAsync(from, to, key, fallback));
+  }
+
+  @Override
+  public CompletableFuture<IntList> getHoursAsync(
+      final long from,
+      final long to,
+      final String key,
+      final BiFunction<Long, Long, CompletableFuture<IntList>> fallback
+  ) {
+    final int fromHour = (int) TimeUnit.MICROSECONDS.toHours(from);
+    final int toHour = (int) TimeUnit.MICROSECONDS.toHours(to);
+    if (toHour < fromHour) {
+      return CompletableFuture.completedFuture(new IntArrayList());
+    }
+    final List<String> pageKeys = new ArrayList<>();
+    for (int page = fromHour / PAGE_HOURS; page <= toHour / PAGE_HOURS; page++) {
+      pageKeys.add(Utils.createTimedKey(page, key));
+    }
+    return Utils.doBatchReadWithCacheMappedAsync(client,
+        cache,
+        missingKeys,
+        inFlight,
+        NAMESPACE,
+        setName,
+        pageKeys,
+        batchRead -> isComplete(batchRead) ? toWords(batchRead) : null
+    ).thenCompose(pages -> {
+      final IntList hours = hoursOf(pages, key, fromHour, toHour);
+      final List<int[]> absent = absentPages(pages, key, fromHour, toHour);
+      if (absent.isEmpty()) {
+        return CompletableFuture.completedFuture(hours);
+      }
+      final List<CompletableFuture<IntList>> fallbacks = new ArrayList<>(absent.size());
+      for (final int[] run : absent) {
+        fallbacks.add(fallback.apply(TimeUnit.HOURS.toMicros(run[0]),
+            TimeUnit.HOURS.toMicros(run[1] + 1) - 1
+        ).thenApply(found -> {
+          backfill(key, found);
+          return found;
+        }));
+      }
+      return Utils.allOf(fallbacks).thenApply(found -> merge(hours, found, fromHour, toHour));
+    });
+  }
+
+  /**
+   * ORs the hours found by a fallback in their pages and marks them complete. Pages without hours
+   * are left without a record, so reads of keys that never had points write nothing.
+   */
+  private void backfill(final String key, final IntList hours) {
+    final Map<String, byte[]> masksByRecord = new HashMap<>();
+    for (int i = 0; i < hours.size(); i++) {
+      final int hour = hours.getInt(i);
+      setHour(masksByRecord.computeIfAbsent(Utils.createTimedKey(hour / PAGE_HOURS, key),
+          k -> new byte[PAGE_BYTES]
+      ), hour % PAGE_HOURS);
+    }
+    masksByRecord.forEach((recordKey, mask) -> {
+      client.operate(WritePolicies.getSendKeyPolicy(),
+          new Key(NAMESPACE, setName, recordKey),
+          BitOperation.resize(BitPolicy.Default, BIN_NAME, PAGE_BYTES, BitResizeFlags.GROW_ONLY),
+          BitOperation.or(BitPolicy.Default, BIN_NAME, 0, PAGE_HOURS, mask),
+          Operation.put(new Bin(COMPLETE_BIN, 1))
+      );
+      // read again, with the bits of writes racing the backfill
+      cache.asMap().remove(recordKey);
+      missingKeys.invalidate(recordKey);
+    });
+  }
+
+  @Override
+  public void writeHour(final long timestamp, final String key) {
+    writeHours(Collections.singletonMap(key,
+        Collections.singleton((int) TimeUnit.MICROSECONDS.toHours(timestamp))
+    ));
+  }
+
+  @Override
+  public void writeHours(
+      final Collection<VehicleData> vehicleData, final Function<VehicleData, String> keyOf
+  ) {
+    final Map<String, Set<Integer>> hoursByKey = new HashMap<>();
+    for (final VehicleData data : vehicleData) {
+      DU.appendToCollection(hoursByKey,
+          keyOf.apply(data),
+          (int) TimeUnit.MICROSECONDS.toHours(data.getTs()),
+          () -> new HashSet<>()
+      );
+    }
+    writeHours(hoursByKey);
+  }
+
+  private void writeHours(final Map<String, ? extends Collection<Integer>> hoursByKey) {
+    final Map<String, byte[]> masksByRecord = new HashMap<>();
+    final Map<Long, Set<String>> writtenByHour = new HashMap<>();
+    hoursByKey.forEach((key, hours) -> {
+      for (final int hour : hours) {
+        if (writtenKeys.isWritten(hour, key)) {
+          continue;
+        }
+        final byte[] mask = masksByRecord.computeIfAbsent(Utils.createTimedKey(hour / PAGE_HOURS,
+            key
+        ), k -> new byte[PAGE_BYTES]);
+        setHour(mask, hour % PAGE_HOURS);
+        DU.appendToCollection(writtenByHour, (long) hour, key, () -> new HashSet<>());
+      }
+    });
+    masksByRecord.forEach((recordKey, mask) -> {
+      client.operate(WritePolicies.getSendKeyPolicy(),
+          new Key(NAMESPACE, setName, recordKey),
+          BitOperation.resize(BitPolicy.Default, BIN_NAME, PAGE_BYTES, BitResizeFlags.GROW_ONLY),
+          BitOperation.or(BitPolicy.Default, BIN_NAME, 0, PAGE_HOURS, mask)
+      );
+      missingKeys.invalidate(recordKey);
+      // copied, readers may be scanning the cached words
+      cache.asMap().computeIfPresent(recordKey, (k, words) -> or(words, toWords(mask)));
+    });
+    writtenByHour.forEach(writtenKeys::markWritten);
+  }
+
+  @Override
+  public void invalidateCache(final long timestamp, final String key) {
+    final long hours = TimeUnit.MICROSECONDS.toHours(timestamp);
+    final String recordKey = Utils.createTimedKey(hours / PAGE_HOURS, key);
+    cache.asMap().remove(recordKey);
+    missingKeys.invalidate(recordKey);
+  }
+
+  @Override
+  public void deleteAllData() {
+    Utils.deleteAll(client, NAMESPACE, setName);
+    writtenKeys.clear();
+  }
+
+  @Override
+  public void invalidateAllCache() {
+    cache.asMap().clear();
+    missingKeys.clear();
+    writtenKeys.clear();
+  }
+
+  @Override
+  public long getSkippedWrites() {
+    return writtenKeys.getSkipped();
+  }
+
+  @Override
+  public long getSavedMissingReads() {
+    return missingKeys.getSaved();
+  }
+
+  @Override
+  public List<CacheStatistics> getCacheStatistics() {
+    return Collections.singletonList(CacheStatistics.of(setName, cache));
+  }
+
+  /**
+   * @param pages words of each "page:key" record, a page absent or empty has no hours
+   * @return the hours in [fromHour, toHour] whose bit is set, ascending
+   */
+  public static IntList hoursOf(
+      final Map<String, long[]> pages, final String key, final int fromHour, final int toHour
+  ) {
+    final IntList hours = new IntArrayList();
+    for (int page = fromHour / PAGE_HOURS; page <= toHour / PAGE_HOURS; page++) {
+      final long[] words = pages.get(Utils.createTimedKey(page, key));
+      if (words == null || words.length == 0) {
+        continue;
+      }
+      final int pageStart = page * PAGE_HOURS;
+      for (int w = 0; w < words.length; w++) {
+        long word = words[w];
+        while (word != 0) {
+          final int bit = Long.numberOfLeadingZeros(word);
+          word &= ~(Long.MIN_VALUE >>> bit);
+          final int hour = pageStart + w * Long.SIZE + bit;
+          if (hour >= fromHour && hour <= toHour) {
+            hours.add(hour);
+          }
+        }
+      }
+    }
+    return hours;
+  }
+
+  /**
+   * @param pages words of each complete "page:key" record
+   * @return the runs of consecutive pages of [fromHour, toHour] not complete, as [first hour, last
+   *     hour] of the whole pages
+   */
+  public static List<int[]> absentPages(
+      final Map<String, long[]> pages, final String key, final int fromHour, final int toHour
+  ) {
+    final List<int[]> runs = new ArrayList<>();
+    int[] run = null;
+    for (int page = fromHour / PAGE_HOURS; page <= toHour / PAGE_HOURS; page++) {
+      if (pages.containsKey(Utils.createTimedKey(page, key))) {
+        run = null;
+        continue;
+      }
+      final int last = (page + 1) * PAGE_HOURS - 1;
+      if (run == null) {
+        run = new int[]{page * PAGE_HOURS, last};
+        runs.add(run);
+      } else {
+        run[1] = last;
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * @return the hours of the pages and of the fallbacks within [fromHour, toHour], ascending
+   */
+  private static IntList merge(
+      final IntList hours, final List<IntList> fallbacks, final int fromHour, final int toHour
+  ) {
+    final IntSortedSet merged = new IntRBTreeSet(hours);
+    for (final IntList found : fallbacks) {
+      for (int i = 0; i < found.size(); i++) {
+        final int hour = found.getInt(i);
+        if (hour >= fromHour && hour <= toHour) {
+          merged.add(hour);
+        }
+      }
+    }
+    return new IntArrayList(merged);
+  }
+
+  public static void setHour(final byte[] page, final int offset) {
+    page[offset >>> 3] |= 0x80 >>> (offset & 7);
+  }
+
+  public static long[] toWords(final byte[] page) {
+    final ByteBuffer buffer = ByteBuffer.wrap(page);
+    final long[] words = new long[page.length / Long.BYTES];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = buffer.getLong();
+    }
+    return words;
+  }
+
+  private static boolean isComplete(final BatchRead batchRead) {
+    return batchRead.record.getValue(COMPLETE_BIN) != null;
+  }
+
+  private static long[] toWords(final BatchRead batchRead) {
+    final Object bytes = batchRead.record.getValue(BIN_NAME);
+    return bytes instanceof byte[] ? toWords((byte[]) bytes) : new long[0];
+  }
+
+  private static long[] or(final long[] words, final long[] mask) {
+    final long[] result = new long[Math.max(words.length, mask.length)];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = (i < words.length ? words[i] : 0) | (i < mask.length ? mask[i] : 0);
+    }
+    return result;
+  }
+}
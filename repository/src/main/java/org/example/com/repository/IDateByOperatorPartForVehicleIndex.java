@@ -1,15 +1,47 @@
 package org.example.com.repository;
 
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 public interface IDateByOperatorPartForVehicleIndex {
 
   PartedKeyValues getVehiclesOnDateOperatorPart(long from, long to, final String operator);
 
+  CompletableFuture<PartedKeyValues> getVehiclesOnDateOperatorPartAsync(
+      long from, long to, final String operator
+  );
+
+  /**
+   * Reads only the given hours of the range, the ones the operator is known to have points in.
+   */
+  CompletableFuture<PartedKeyValues> getVehiclesOnDateOperatorPartAsync(
+      long from, long to, final String operator, IntList hours
+  );
+
   void writeVehicleOnDatePartOperator(long timestamp, String operator, final String vehicleId);
+
+  void writeVehiclesOnDatePartOperator(Collection<VehicleData> vehicleData);
+
   void invalidateCache(long timestamp, final String operator);
 
   void deleteAllData();
   void invalidateAllCache();
 
+  /**
+   * @return index writes skipped because this process already wrote the same entry
+   */
+  long getSkippedWrites();
+
+  /**
+   * @return reads of index records skipped because they are known to be missing
+   */
+  long getSavedMissingReads();
+
+  List<CacheStatistics> getCacheStatistics();
+
 }
@@ -1,16 +1,47 @@
 package org.example.com.repository;
 
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 public interface IDatePartitionForOperatorIndex {
 
   PartedKeyValues getOperatorsOnDatePart(long from, long to);
 
+  CompletableFuture<PartedKeyValues> getOperatorsOnDatePartAsync(long from, long to);
+
+  /**
+   * Minute activity of the operators in an hour, written with {@link #writeOperatorsOnDatePart}.
+   *
+   * @param hour hours since epoch
+   * @return operator to the minutes since epoch where it has at least one point
+   */
+  CompletableFuture<Map<String, IntList>> getOperatorMinutesAsync(int hour);
+
   void writeOperatorsOnDatePart(long timestamp, String operator);
 
+  void writeOperatorsOnDatePart(Collection<VehicleData> vehicleData);
+
   void invalidateCache(long timestamp);
 
   void deleteAllData();
 
   void invalidateAllCache();
+
+  /**
+   * @return index writes skipped because this process already wrote the same entry
+   */
+  long getSkippedWrites();
+
+  /**
+   * @return reads of index records skipped because they are known to be missing
+   */
+  long getSavedMissingReads();
+
+  List<CacheStatistics> getCacheStatistics();
 }
@@ -1,16 +1,37 @@
 package org.example.com.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
 
 public interface IDatePartitionForVehicleIndex {
 
   PartedKeyValues getVehiclesOnDatePart(long from, long to);
 
+  CompletableFuture<PartedKeyValues> getVehiclesOnDatePartAsync(long from, long to);
+
   void writeVehicleOnDatePart(long timestamp, String vehicle);
 
+  void writeVehiclesOnDatePart(Collection<VehicleData> vehicleData);
+
   void invalidateCache(long timestamp);
 
   void deleteAllData();
 
   void invalidateAllCache();
+
+  /**
+   * @return index writes skipped because this process already wrote the same entry
+   */
+  long getSkippedWrites();
+
+  /**
+   * @return reads of index records skipped because they are known to be missing
+   */
+  long getSavedMissingReads();
+
+  List<CacheStatistics> getCacheStatistics();
 }
@@ -0,0 +1,53 @@
+package org.example.com.repository;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.CacheStatistics;
+
+/**
+ * Hours in which a key, a vehicle or an operator, has points.
+ */
+public interface IHourPresenceIndex {
+
+  IntList getHours(
+      long from, long to, String key, BiFunction<Long, Long, CompletableFuture<IntList>> fallback
+  );
+
+  /**
+   * Keys may have points written before this index existed, so the hours of pages not yet
+   * backfilled are asked to {@code fallback}, once per run of such pages with the whole pages the
+   * run spans, and written back to the pages.
+   *
+   * @return the hours of [from, to] in which the key has points, ascending
+   */
+  CompletableFuture<IntList> getHoursAsync(
+      long from, long to, String key, BiFunction<Long, Long, CompletableFuture<IntList>> fallback
+  );
+
+  void writeHour(long timestamp, String key);
+
+  void writeHours(Collection<VehicleData> vehicleData, Function<VehicleData, String> keyOf);
+
+  void invalidateCache(long timestamp, String key);
+
+  void deleteAllData();
+
+  void invalidateAllCache();
+
+  /**
+   * @return index writes skipped because this process already wrote the same hour
+   */
+  long getSkippedWrites();
+
+  /**
+   * @return reads of pages skipped because they are known to be missing
+   */
+  long getSavedMissingReads();
+
+  List<CacheStatistics> getCacheStatistics();
+}
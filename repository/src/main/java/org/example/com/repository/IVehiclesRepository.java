@@ -1,8 +1,10 @@
 package org.example.com.repository;
 
+import java.util.Collection;
 import java.util.NavigableSet;
 import java.util.Set;
 import org.example.com.data.VehicleData;
+import org.example.com.repository.data.RepositoryStatistics;
 
 public interface IVehiclesRepository {
 
@@ -16,7 +18,27 @@ public interface IVehiclesRepository {
 
   void writeData(VehicleData vehicleData);
 
+  void writeBatch(Collection<VehicleData> vehicleData);
+
   void deleteAllData();
 
   void invalidateAllCache();
+
+  /**
+   * @return index writes skipped since the entries were already written by this process
+   */
+  long getSkippedIndexWrites();
+
+  /**
+   * @return reads of index records, hour pages included, and of bucket summaries skipped because
+   *     the records are known to be missing
+   */
+  long getSavedMissingIndexReads();
+
+  /**
+   * @return false while a cache warm-up runs
+   */
+  boolean isWarmedUp();
+
+  RepositoryStatistics getStatistics();
 }
@@ -0,0 +1,59 @@
+package org.example.com.repository;
+
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.data.VehicleDataPage;
+
+/**
+ * Non blocking reads of {@link IVehiclesRepository}. Futures complete on the Aerospike client's
+ * event loops, dependent stages should not block.
+ */
+public interface IVehiclesRepositoryAsync {
+
+  CompletableFuture<Set<String>> getOperatorsAsync(long from, long to);
+
+  CompletableFuture<NavigableSet<VehicleData>> getVehiclesOfOperatorAsync(
+      long from, long to, final String operator
+  );
+
+  CompletableFuture<Set<String>> getVehiclesStoppedOfOperatorAsync(
+      long from, long to, final String operator
+  );
+
+  CompletableFuture<NavigableSet<VehicleData>> getVehiclesDataWithIdAsync(
+      long from, long to, final String vehicleId
+  );
+
+  /**
+   * A page of {@link #getVehiclesDataWithIdAsync}, see {@link PageCursor}.
+   *
+   * @param cursor the next cursor of the previous page, null for the first one
+   * @param limit most points of the page
+   */
+  CompletableFuture<VehicleDataPage> getVehiclesDataWithIdPageAsync(
+      long from, long to, final String vehicleId, String cursor, int limit
+  );
+
+  /**
+   * A page of {@link #getVehiclesOfOperatorAsync}, same as above.
+   */
+  CompletableFuture<VehicleDataPage> getVehiclesOfOperatorPageAsync(
+      long from, long to, final String operator, String cursor, int limit
+  );
+
+  /**
+   * Points of the vehicle in [from, to], handed to {@code consumer} hour bucket by hour bucket in
+   * time order. The consumer is called again once the future it returned completes, so a slow
+   * reader holds back the reads and only a couple of chunks of buckets are in memory at a time.
+   * The sets given to the consumer are views, they are valid until its future completes.
+   */
+  CompletableFuture<Void> streamVehiclesDataWithIdAsync(
+      long from,
+      long to,
+      final String vehicleId,
+      Function<NavigableSet<VehicleData>, CompletableFuture<Void>> consumer
+  );
+}
@@ -0,0 +1,107 @@
+package org.example.com.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Reads in flight per key, so concurrent misses of a cache share one server read.
+ *
+ * <p>{@link #getAll} follows Caffeine's bulk {@code getAll}: keys found by the lookup are
+ * returned as they are, keys another call is already reading are joined to that read, the rest
+ * are loaded together by a single call of the loader. The loader stores what it read in the cache
+ * before completing, so a key leaves this registry only once the cache has it.
+ */
+public class InFlightReads<V> {
+
+  private final ConcurrentMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * @param lookup the cached value of a key, or null
+   * @param loader reads the given keys, a key missing from its map or mapped to null is absent
+   * @return the values of the keys that have one
+   */
+  public CompletableFuture<Map<String, V>> getAll(
+      final Collection<String> keys,
+      final Function<String, V> lookup,
+      final Function<List<String>, CompletableFuture<Map<String, V>>> loader
+  ) {
+    final Map<String, V> result = new HashMap<>();
+    final Map<String, CompletableFuture<V>> owned = new HashMap<>();
+    final Map<String, CompletableFuture<V>> joined = new HashMap<>();
+    for (final String key : keys) {
+      final V cached = lookup.apply(key);
+      if (cached != null) {
+        result.put(key, cached);
+        continue;
+      }
+      final CompletableFuture<V> future = new CompletableFuture<>();
+      final CompletableFuture<V> prior = inFlight.putIfAbsent(key, future);
+      if (prior != null) {
+        joined.put(key, prior);
+        continue;
+      }
+      // a read may have completed since the lookup
+      final V completed = lookup.apply(key);
+      if (completed != null) {
+        inFlight.remove(key, future);
+        future.complete(completed);
+        result.put(key, completed);
+      } else {
+        owned.put(key, future);
+      }
+    }
+
+    final CompletableFuture<Map<String, V>> loaded = load(new ArrayList<>(owned.keySet()), loader);
+    loaded.whenComplete((values, throwable) -> owned.forEach((key, future) -> {
+      inFlight.remove(key, future);
+      if (throwable != null) {
+        future.completeExceptionally(throwable);
+      } else {
+        future.complete(values.get(key));
+      }
+    }));
+    return loaded.thenCompose(values -> {
+      values.forEach((key, value) -> {
+        if (value != null) {
+          result.put(key, value);
+        }
+      });
+      return CompletableFuture.allOf(joined.values().toArray(new CompletableFuture<?>[0]))
+          .thenApply(v -> {
+            joined.forEach((key, future) -> {
+              final V value = future.join();
+              if (value != null) {
+                result.put(key, value);
+              }
+            });
+            return result;
+          });
+    });
+  }
+
+  public int size() {
+    return inFlight.size();
+  }
+
+  private static <V> CompletableFuture<Map<String, V>> load(
+      final List<String> keys, final Function<List<String>, CompletableFuture<Map<String, V>>> loader
+  ) {
+    if (keys.isEmpty()) {
+      return CompletableFuture.completedFuture(new HashMap<>());
+    }
+    try {
+      return loader.apply(keys);
+    } catch (final RuntimeException exception) {
+      final CompletableFuture<Map<String, V>> failed = new CompletableFuture<>();
+      failed.completeExceptionally(exception);
+      return failed;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package org.example.com.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keys of index records found missing, so hours or days without data are not read again on every
+ * query.
+ *
+ * <p>Only keys of closed periods, see {@link PeriodExpiry}, are remembered and only for a short
+ * ttl, in case a late write of another process creates them. Writes of this process forget the
+ * key right away.
+ */
+public class MissingKeys {
+
+  private final PeriodExpiry<Boolean> periods;
+  private final Cache<String, Boolean> keys;
+  private final LongAdder saved = new LongAdder();
+
+  public MissingKeys(final TimeUnit period, final CacheSettings cacheSettings) {
+    this(period.toMillis(1), cacheSettings);
+  }
+
+  /**
+   * @param periodMillis length of a period, for periods that are not a {@link TimeUnit}
+   */
+  public MissingKeys(final long periodMillis, final CacheSettings cacheSettings) {
+    this.periods = new PeriodExpiry<>(periodMillis, cacheSettings);
+    this.keys = Caffeine.newBuilder()
+        .maximumSize(cacheSettings.getMissingKeysMaxSize())
+        .expireAfterWrite(cacheSettings.getMissingKeysTtlMillis(), TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * @return true if the key is known to be missing, in which case a read is counted as saved
+   */
+  public boolean isMissing(final String key) {
+    if (keys.getIfPresent(key) != null) {
+      saved.increment();
+      return true;
+    }
+    return false;
+  }
+
+  public void markMissing(final String key) {
+    if (periods.isClosed(key)) {
+      keys.put(key, Boolean.TRUE);
+    }
+  }
+
+  public void invalidate(final String key) {
+    keys.invalidate(key);
+  }
+
+  public void clear() {
+    keys.invalidateAll();
+  }
+
+  /**
+   * @return reads of missing records answered from here
+   */
+  public long getSaved() {
+    return saved.sum();
+  }
+}
@@ -0,0 +1,191 @@
+package org.example.com.repository;
+
+import com.github.benmanes.caffeine.cache.CacheWriter;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.vavr.control.Try;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Second level for a Caffeine cache, holding encoded values in direct {@link ByteBuffer} slabs so
+ * they cost no heap and no GC work.
+ *
+ * <p>Values enter when the first level evicts them for size (see {@link #asVictimWriter()}) and leave
+ * when they are taken back, so an entry lives in one level at a time and a write to the first
+ * level never leaves a stale copy here. Slabs are filled in turn, when the last one is full the
+ * oldest is reused and whatever it still holds is dropped. Slabs are allocated on first use.
+ *
+ * <p>Each entry is its length as an int followed by the encoded bytes.
+ */
+public class OffHeapCache<V> {
+
+  public static final int DEFAULT_SLAB_BYTES = 64 << 20;
+
+  private final Function<V, byte[]> encoder;
+  private final Function<ByteBuffer, V> decoder;
+  private final int slabBytes;
+  private final ByteBuffer[] slabs;
+  private final List<String>[] keysBySlab;
+  // slab index in the high int, offset of the entry in the low one
+  private final Map<String, Long> locations = new ConcurrentHashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private int writeSlab;
+
+  public OffHeapCache(
+      final long maxBytes, final Function<V, byte[]> encoder, final Function<ByteBuffer, V> decoder
+  ) {
+    this(maxBytes, DEFAULT_SLAB_BYTES, encoder, decoder);
+  }
+
+  @SuppressWarnings("unchecked")
+  public OffHeapCache(
+      final long maxBytes,
+      final int slabBytes,
+      final Function<V, byte[]> encoder,
+      final Function<ByteBuffer, V> decoder
+  ) {
+    this.slabBytes = (int) Math.min(slabBytes, Math.max(maxBytes, 0));
+    final int slabCount = this.slabBytes == 0 ? 0
+        : (int) ((maxBytes + this.slabBytes - 1) / this.slabBytes);
+    this.slabs = new ByteBuffer[slabCount];
+    @SuppressWarnings("unchecked")
+    final List<String>[] keysBySlab = (List<String>[]) new List<?>[slabCount];
+    this.keysBySlab = keysBySlab;
+    this.encoder = encoder;
+    this.decoder = decoder;
+  }
+
+  public boolean isEnabled() {
+    return slabs.length > 0;
+  }
+
+  /**
+   * Stores the value unless the key is already here. Values that do not encode, or do not fit in
+   * a slab, are not kept.
+   */
+  public void put(final String key, final V value) {
+    if (!isEnabled() || value == null || locations.containsKey(key)) {
+      return;
+    }
+    final byte[] bytes = encoder.apply(value);
+    if (bytes == null || bytes.length + Integer.BYTES > slabBytes) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      ByteBuffer slab = slabs[writeSlab];
+      if (slab == null || slab.remaining() < bytes.length + Integer.BYTES) {
+        slab = nextSlab();
+      }
+      final int offset = slab.position();
+      slab.putInt(bytes.length);
+      slab.put(bytes);
+      keysBySlab[writeSlab].add(key);
+      locations.put(key, ((long) writeSlab << 32) | offset);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes the entry and decodes it, straight from its slab.
+   *
+   * @return null when absent or not decodable
+   */
+  public V take(final String key) {
+    if (!isEnabled()) {
+      return null;
+    }
+    lock.readLock().lock();
+    try {
+      // slabs are only reused under the write lock, after dropping their locations
+      final Long location = locations.remove(key);
+      if (location == null) {
+        return null;
+      }
+      final ByteBuffer entry = slabs[(int) (location >>> 32)].duplicate();
+      entry.position((int) location.longValue());
+      final int length = entry.getInt();
+      entry.limit(entry.position() + length);
+      return Try.of(() -> decoder.apply(entry.slice()))
+          .onFailure(t -> t.printStackTrace())
+          .getOrNull();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void invalidate(final String key) {
+    locations.remove(key);
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      locations.clear();
+      for (int i = 0; i < slabs.length; i++) {
+        if (slabs[i] != null) {
+          slabs[i].clear();
+          keysBySlab[i].clear();
+        }
+      }
+      writeSlab = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public long size() {
+    return locations.size();
+  }
+
+  /**
+   * Writer moving entries evicted for size from the first level here, and dropping them here when they are
+   * written or invalidated there. Invalidating a key absent from the first level does not reach
+   * the writer, {@link #invalidate(String)} has to be called as well.
+   */
+  public CacheWriter<String, V> asVictimWriter() {
+    return new CacheWriter<String, V>() {
+      @Override
+      public void write(final String key, final V value) {
+        invalidate(key);
+      }
+
+      @Override
+      public void delete(final String key, final V value, final RemovalCause cause) {
+        // an expired entry is one that may have changed
+        if (cause == RemovalCause.SIZE) {
+          put(key, value);
+        } else {
+          invalidate(key);
+        }
+      }
+    };
+  }
+
+  private ByteBuffer nextSlab() {
+    if (slabs[writeSlab] != null) {
+      writeSlab = (writeSlab + 1) % slabs.length;
+    }
+    if (slabs[writeSlab] == null) {
+      slabs[writeSlab] = ByteBuffer.allocateDirect(slabBytes);
+      keysBySlab[writeSlab] = new ArrayList<>();
+    } else {
+      final long slabIndex = writeSlab;
+      for (final String key : keysBySlab[writeSlab]) {
+        locations.computeIfPresent(key,
+            (k, location) -> location >>> 32 == slabIndex ? null : location
+        );
+      }
+      keysBySlab[writeSlab].clear();
+      slabs[writeSlab].clear();
+    }
+    return slabs[writeSlab];
+  }
+}
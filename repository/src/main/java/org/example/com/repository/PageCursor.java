@@ -0,0 +1,45 @@
+package org.example.com.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.example.com.data.VehicleData;
+
+/**
+ * Opaque position in a time ordered listing of points, the last point returned. A page resumes
+ * after it in {@link VehicleData#compareTo} order, its hour being the hour of the timestamp.
+ */
+public final class PageCursor {
+
+  private PageCursor() {
+  }
+
+  public static String encode(final VehicleData last) {
+    final String position = last.getTs() + ":" + (last.getVehicleId() == null ? ""
+        : last.getVehicleId());
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return a point comparing equal to the last one returned, or null for the first page
+   * @throws IllegalArgumentException when the cursor was not made by {@link #encode}
+   */
+  public static VehicleData decode(final String cursor) {
+    if (cursor == null || cursor.isEmpty()) {
+      return null;
+    }
+    final String position = new String(Base64.getUrlDecoder().decode(cursor),
+        StandardCharsets.UTF_8
+    );
+    final int separator = position.indexOf(':');
+    if (separator <= 0) {
+      throw new IllegalArgumentException("Invalid cursor " + cursor);
+    }
+    final VehicleData after = new VehicleData();
+    // a NumberFormatException is an IllegalArgumentException
+    after.setTs(Long.parseLong(position.substring(0, separator)));
+    after.setVehicleId(position.substring(separator + 1));
+    return after;
+  }
+}
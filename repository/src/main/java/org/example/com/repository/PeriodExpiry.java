@@ -0,0 +1,101 @@
+package org.example.com.repository;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Expiry of entries keyed by "period" or "period:key", the period being a number of hours or
+ * days since the epoch as in {@link Utils#createTimedKey(long, String)}.
+ *
+ * <p>Records of a period only change while it is open, plus a grace for late points. Once closed
+ * an entry never expires and is only evicted by size, while the open period is cached for a short
+ * ttl so writes from other processes are seen. Keys without a period get the short ttl.
+ */
+public class PeriodExpiry<V> implements Expiry<String, V> {
+
+  private final long periodMillis;
+  private final long openTtlNanos;
+  private final long closedAfterMillis;
+  private final LongSupplier clock;
+
+  public PeriodExpiry(final TimeUnit period, final CacheSettings cacheSettings) {
+    this(period.toMillis(1), cacheSettings);
+  }
+
+  /**
+   * @param periodMillis length of a period, for periods that are not a {@link TimeUnit}
+   */
+  public PeriodExpiry(final long periodMillis, final CacheSettings cacheSettings) {
+    this(periodMillis,
+        cacheSettings.getOpenPeriodTtlMillis(),
+        cacheSettings.getClosedPeriodGraceMillis(),
+        System::currentTimeMillis
+    );
+  }
+
+  public PeriodExpiry(
+      final TimeUnit period,
+      final long openTtlMillis,
+      final long closedAfterMillis,
+      final LongSupplier clock
+  ) {
+    this(period.toMillis(1), openTtlMillis, closedAfterMillis, clock);
+  }
+
+  public PeriodExpiry(
+      final long periodMillis,
+      final long openTtlMillis,
+      final long closedAfterMillis,
+      final LongSupplier clock
+  ) {
+    this.periodMillis = periodMillis;
+    this.openTtlNanos = TimeUnit.MILLISECONDS.toNanos(openTtlMillis);
+    this.closedAfterMillis = closedAfterMillis;
+    this.clock = clock;
+  }
+
+  public boolean isClosed(final String key) {
+    final long start = parsePeriod(key);
+    return start != Utils.INVALID_TIME
+        && (start + 1) * periodMillis + closedAfterMillis <= clock.getAsLong();
+  }
+
+  @Override
+  public long expireAfterCreate(final String key, final V value, final long currentTime) {
+    return isClosed(key) ? Long.MAX_VALUE : openTtlNanos;
+  }
+
+  /**
+   * Recomputed, an entry written while open may be updated after its period closed.
+   */
+  @Override
+  public long expireAfterUpdate(
+      final String key, final V value, final long currentTime, final long currentDuration
+  ) {
+    return expireAfterCreate(key, value, currentTime);
+  }
+
+  @Override
+  public long expireAfterRead(
+      final String key, final V value, final long currentTime, final long currentDuration
+  ) {
+    return currentDuration;
+  }
+
+  /**
+   * @return the leading number of the key, or {@link Utils#INVALID_TIME}
+   */
+  static long parsePeriod(final String key) {
+    long value = 0;
+    int i = 0;
+    for (; i < key.length() && key.charAt(i) != ':'; i++) {
+      final int digit = key.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || i > 18) {
+        return Utils.INVALID_TIME;
+      }
+      value = value * 10 + digit;
+    }
+    return i == 0 ? Utils.INVALID_TIME : value;
+  }
+}
@@ -1,8 +1,16 @@
 package org.example.com.repository;
 
 import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
 import com.aerospike.client.BatchRead;
 import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.listener.BatchListListener;
+import com.aerospike.client.policy.WritePolicy;
 import com.aerospike.client.query.RecordSet;
 import com.aerospike.client.query.Statement;
 import com.github.benmanes.caffeine.cache.Cache;
@@ -20,7 +28,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -28,10 +40,25 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.example.com.data.utils.DU;
 import org.example.com.repository.data.AerospikeValues;
+import org.example.com.repository.data.PartedKeyValues;
 
 @SuppressWarnings("ALL")
 public class Utils {
 
+  private static final LongAdder BATCH_READS = new LongAdder();
+  private static final LongAdder BATCH_READ_KEYS = new LongAdder();
+  private static volatile BatchSettings batchSettings = new BatchSettings();
+  // blocking batch reads of clients without event loops
+  private static final ScalingThreadExecutor BATCH_EXECUTOR = createDaemonExecutor("batch-read-",
+      batchSettings.getParallelism()
+  );
+  // completes batch reads, so continuations never run on an event loop or a batch read thread,
+  // unbounded as continuations may block on reads whose completion would otherwise queue behind
+  private static final ScalingThreadExecutor CALLBACK_EXECUTOR = createDaemonExecutor(
+      "batch-callback-",
+      Integer.MAX_VALUE
+  );
+
 
   /**
    * @param from timestamp in microseconds
@@ -101,6 +128,8 @@ public class Utils {
         .collect(Collectors.toList());
   }
 
+  public static final long INVALID_TIME = Long.MIN_VALUE;
+
   public static Try<Tuple2<Integer, String>> parseTimedKey(final String s) {
     if (!Strings.isNullOrEmpty(s)) {
       String[] split = s.split(":");
@@ -134,65 +163,501 @@ public class Utils {
   public static void doBatchReadWithCache(
       final AerospikeClient aerospikeClient,
       final Cache<String, BatchRead> batchReadCache,
+      final MissingKeys missingKeys,
+      final InFlightReads<BatchRead> inFlightReads,
       final String namespace,
       final String setName,
       final Collection<String> keys,
       final Consumer<BatchRead> consume
   ) {
-    final List<BatchRead> alreadyInCache = new ArrayList<>();
-    final List<BatchRead> needToFetch = new ArrayList<>();
-    for (final String key : keys) {
-      if (batchReadCache.asMap().containsKey(key)) {
-        consume.accept(batchReadCache.getIfPresent(key));
-      } else {
-        needToFetch.add(new BatchRead(new Key(namespace, setName, key), true));
-      }
-    }
-    for (final List<BatchRead> batchReadsParted : Lists.partition(needToFetch,
-        AerospikeValues.MAX_BATCH
-    )) {
-      aerospikeClient.get(null, batchReadsParted);
-      for (final BatchRead batchRead : batchReadsParted) {
-        consume.accept(batchRead);
-        if (Objects.nonNull(batchRead.record)) {
-          batchReadCache.put(batchRead.key.userKey.toString(), batchRead);
-        }
-      }
-    }
+    join(doBatchReadWithCacheAsync(aerospikeClient,
+        batchReadCache,
+        missingKeys,
+        inFlightReads,
+        namespace,
+        setName,
+        keys
+    )).forEach(consume);
   }
 
-
+  /**
+   * Keys missing from the cache are looked up in {@code offHeapCache}, if any, before the server.
+   * Values found there are moved back to the cache.
+   */
   public static <V> Map<String, V> doBatchReadWithCacheMapped(
       final AerospikeClient aerospikeClient,
       final Cache<String, V> batchReadCache,
+      final OffHeapCache<V> offHeapCache,
+      final InFlightReads<V> inFlightReads,
       final String namespace,
       final String setName,
       final Collection<String> keys,
       final Function<BatchRead, V> mapping
   ) {
-    final Map<String, V> result = new HashMap<>();
-    final List<BatchRead> alreadyInCache = new ArrayList<>();
-    final List<BatchRead> needToFetch = new ArrayList<>();
+    return join(doBatchReadWithCacheMappedAsync(aerospikeClient,
+        batchReadCache,
+        offHeapCache,
+        inFlightReads,
+        namespace,
+        setName,
+        keys,
+        mapping
+    ));
+  }
+
+
+  /**
+   * Async counterpart of {@link #doBatchReadWithCache}, missing keys are read on the client's
+   * event loops, once for all concurrent callers. Records read from the cache and from the server
+   * are returned together. Records not found are returned with a null record, they are remembered
+   * by {@code missingKeys} instead of the cache.
+   */
+  public static CompletableFuture<List<BatchRead>> doBatchReadWithCacheAsync(
+      final AerospikeClient aerospikeClient,
+      final Cache<String, BatchRead> batchReadCache,
+      final MissingKeys missingKeys,
+      final InFlightReads<BatchRead> inFlightReads,
+      final String namespace,
+      final String setName,
+      final Collection<String> keys
+  ) {
+    return doBatchReadWithCacheAsync(aerospikeClient,
+        batchReadCache,
+        missingKeys,
+        inFlightReads,
+        namespace,
+        setName,
+        keys,
+        null
+    );
+  }
+
+  /**
+   * Same as above reading only {@code binNames}, every bin when null.
+   */
+  public static CompletableFuture<List<BatchRead>> doBatchReadWithCacheAsync(
+      final AerospikeClient aerospikeClient,
+      final Cache<String, BatchRead> batchReadCache,
+      final MissingKeys missingKeys,
+      final InFlightReads<BatchRead> inFlightReads,
+      final String namespace,
+      final String setName,
+      final Collection<String> keys,
+      final String[] binNames
+  ) {
+    return inFlightReads.getAll(keys,
+        key -> {
+          final BatchRead cached = batchReadCache.getIfPresent(key);
+          if (cached == null && missingKeys.isMissing(key)) {
+            return new BatchRead(new Key(namespace, setName, key), true);
+          }
+          return cached;
+        },
+        missing -> batchGetAsync(aerospikeClient,
+            createBatchReads(namespace, setName, missing, binNames)
+        ).thenApply(batchReads -> {
+          final Map<String, BatchRead> loaded = new HashMap<>();
+          for (final BatchRead batchRead : batchReads) {
+            if (Objects.nonNull(batchRead.record)) {
+              batchReadCache.put(batchRead.key.userKey.toString(), batchRead);
+            } else {
+              missingKeys.markMissing(batchRead.key.userKey.toString());
+            }
+            loaded.put(batchRead.key.userKey.toString(), batchRead);
+          }
+          return loaded;
+        })
+    ).thenApply(batchReads -> new ArrayList<>(batchReads.values()));
+  }
+
+  /**
+   * Async counterpart of {@link #doBatchReadWithCacheMapped}, the mapping runs on the thread that
+   * completed the batch, see {@link #batchGetAsync}.
+   */
+  public static <V> CompletableFuture<Map<String, V>> doBatchReadWithCacheMappedAsync(
+      final AerospikeClient aerospikeClient,
+      final Cache<String, V> batchReadCache,
+      final OffHeapCache<V> offHeapCache,
+      final InFlightReads<V> inFlightReads,
+      final String namespace,
+      final String setName,
+      final Collection<String> keys,
+      final Function<BatchRead, V> mapping
+  ) {
+    return inFlightReads.getAll(keys,
+        key -> getFromCaches(batchReadCache, offHeapCache, key),
+        missing -> batchGetAsync(aerospikeClient,
+            createBatchReads(namespace, setName, missing, null)
+        ).thenApply(batchReads -> {
+          final Map<String, V> loaded = new HashMap<>();
+          for (final BatchRead batchRead : batchReads) {
+            final V apply = mapping.apply(batchRead);
+            batchReadCache.put(batchRead.key.userKey.toString(), apply);
+            loaded.put(batchRead.key.userKey.toString(), apply);
+          }
+          return loaded;
+        })
+    );
+  }
+
+  /**
+   * Same as above for records that are not worth caching when absent. Records not found are
+   * remembered by {@code missingKeys} instead of the cache and are absent from the result, the
+   * mapping only sees records found. Records it maps to null are neither cached nor returned.
+   */
+  public static <V> CompletableFuture<Map<String, V>> doBatchReadWithCacheMappedAsync(
+      final AerospikeClient aerospikeClient,
+      final Cache<String, V> batchReadCache,
+      final MissingKeys missingKeys,
+      final InFlightReads<V> inFlightReads,
+      final String namespace,
+      final String setName,
+      final Collection<String> keys,
+      final Function<BatchRead, V> mapping
+  ) {
+    final List<String> unknown = new ArrayList<>(keys.size());
     for (final String key : keys) {
-      if (!batchReadCache.asMap().containsKey(key)) {
-        needToFetch.add(new BatchRead(new Key(namespace, setName, key), true));
+      if (batchReadCache.getIfPresent(key) != null || !missingKeys.isMissing(key)) {
+        unknown.add(key);
+      }
+    }
+    return inFlightReads.getAll(unknown,
+        batchReadCache::getIfPresent,
+        missing -> batchGetAsync(aerospikeClient,
+            createBatchReads(namespace, setName, missing, null)
+        ).thenApply(batchReads -> {
+          final Map<String, V> loaded = new HashMap<>();
+          for (final BatchRead batchRead : batchReads) {
+            final String key = batchRead.key.userKey.toString();
+            if (Objects.isNull(batchRead.record)) {
+              missingKeys.markMissing(key);
+              continue;
+            }
+            final V apply = mapping.apply(batchRead);
+            if (apply != null) {
+              batchReadCache.put(key, apply);
+              loaded.put(key, apply);
+            }
+          }
+          return loaded;
+        })
+    );
+  }
+
+  private static List<BatchRead> createBatchReads(
+      final String namespace, final String setName, final List<String> keys, final String[] binNames
+  ) {
+    final List<BatchRead> batchReads = new ArrayList<>(keys.size());
+    for (final String key : keys) {
+      final Key recordKey = new Key(namespace, setName, key);
+      batchReads.add(binNames == null ? new BatchRead(recordKey, true)
+          : new BatchRead(recordKey, binNames));
+    }
+    return batchReads;
+  }
+
+  private static <V> V getFromCaches(
+      final Cache<String, V> batchReadCache, final OffHeapCache<V> offHeapCache, final String key
+  ) {
+    final V cached = batchReadCache.getIfPresent(key);
+    if (cached != null || offHeapCache == null) {
+      return cached;
+    }
+    final V offHeap = offHeapCache.take(key);
+    if (offHeap != null) {
+      batchReadCache.put(key, offHeap);
+    }
+    return offHeap;
+  }
+
+  /**
+   * Splits the reads in partitions of {@link BatchSettings#getPartitionSize()} and sends them
+   * concurrently, at most {@link BatchSettings#getParallelism()} at once, so a read of many
+   * partitions takes about one round trip per parallelism partitions. Partitions go to the next
+   * event loop, or to {@link #BATCH_EXECUTOR} threads for a client created without event loops.
+   *
+   * <p>The future completes on a {@link #CALLBACK_EXECUTOR} thread. Continuations decode and merge
+   * records and may call the blocking API, which would stall or deadlock an event loop, or starve
+   * the batch read threads. The callback threads are not bounded, so however many continuations
+   * block, the completions they wait on still get a thread.
+   */
+  public static CompletableFuture<List<BatchRead>> batchGetAsync(
+      final AerospikeClient aerospikeClient, final List<BatchRead> batchReads
+  ) {
+    if (batchReads.isEmpty()) {
+      return CompletableFuture.completedFuture(batchReads);
+    }
+    final BatchSettings settings = batchSettings;
+    final List<List<BatchRead>> partitions = Lists.partition(batchReads,
+        settings.getPartitionSize()
+    );
+    final List<CompletableFuture<List<BatchRead>>> futures = new ArrayList<>(partitions.size());
+    for (int i = 0; i < partitions.size(); i++) {
+      futures.add(new CompletableFuture<>());
+    }
+    final AtomicInteger next = new AtomicInteger();
+    for (int i = 0; i < Math.min(settings.getParallelism(), partitions.size()); i++) {
+      readNextPartition(aerospikeClient, partitions, futures, next);
+    }
+    return allOf(futures).thenApply(parts -> batchReads);
+  }
+
+  /**
+   * Reads the next partition not yet taken, and the one after once it completes.
+   */
+  private static void readNextPartition(
+      final AerospikeClient aerospikeClient,
+      final List<List<BatchRead>> partitions,
+      final List<CompletableFuture<List<BatchRead>>> futures,
+      final AtomicInteger next
+  ) {
+    final int i = next.getAndIncrement();
+    if (i >= partitions.size()) {
+      return;
+    }
+    readPartition(aerospikeClient, partitions.get(i)).whenComplete((records, throwable) -> {
+      if (throwable != null) {
+        futures.get(i).completeExceptionally(throwable);
       } else {
-        result.put(key, batchReadCache.getIfPresent(key));
+        futures.get(i).complete(records);
+      }
+      readNextPartition(aerospikeClient, partitions, futures, next);
+    });
+  }
+
+  private static CompletableFuture<List<BatchRead>> readPartition(
+      final AerospikeClient aerospikeClient, final List<BatchRead> partition
+  ) {
+    BATCH_READS.increment();
+    BATCH_READ_KEYS.add(partition.size());
+    final EventLoops eventLoops = aerospikeClient.getCluster().eventLoops;
+    final CompletableFuture<List<BatchRead>> future = new CompletableFuture<>();
+    try {
+      if (eventLoops == null) {
+        BATCH_EXECUTOR.execute(() -> {
+          try {
+            aerospikeClient.get(null, partition);
+            CALLBACK_EXECUTOR.execute(() -> future.complete(partition));
+          } catch (final RuntimeException exception) {
+            CALLBACK_EXECUTOR.execute(() -> future.completeExceptionally(exception));
+          }
+        });
+      } else {
+        aerospikeClient.get(eventLoops.next(), new BatchListListener() {
+          @Override
+          public void onSuccess(final List<BatchRead> records) {
+            CALLBACK_EXECUTOR.execute(() -> future.complete(records));
+          }
+
+          @Override
+          public void onFailure(final AerospikeException exception) {
+            CALLBACK_EXECUTOR.execute(() -> future.completeExceptionally(exception));
+          }
+        }, null, partition);
+      }
+    } catch (final RuntimeException exception) {
+      future.completeExceptionally(exception);
+    }
+    return future;
+  }
+
+  public static BatchSettings getBatchSettings() {
+    return batchSettings;
+  }
+
+  /**
+   * Applies a copy of the settings to every batch read started afterwards.
+   */
+  public static void setBatchSettings(final BatchSettings settings) {
+    final BatchSettings copy = new BatchSettings(settings.getPartitionSize(),
+        settings.getParallelism()
+    );
+    BATCH_EXECUTOR.setMaximumPoolSize(copy.getParallelism());
+    batchSettings = copy;
+  }
+
+  private static ScalingThreadExecutor createDaemonExecutor(
+      final String name, final int maximumPoolSize
+  ) {
+    final ScalingThreadExecutor executor = new ScalingThreadExecutor(0,
+        Math.max(1, maximumPoolSize),
+        1,
+        TimeUnit.MINUTES
+    );
+    final AtomicInteger threads = new AtomicInteger();
+    executor.setThreadFactory(runnable -> {
+      final Thread thread = new Thread(runnable, name + threads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    return executor;
+  }
+
+  /**
+   * @return batch requests sent by {@link #batchGetAsync}, one per partition
+   */
+  public static long getBatchReads() {
+    return BATCH_READS.sum();
+  }
+
+  public static long getBatchReadKeys() {
+    return BATCH_READ_KEYS.sum();
+  }
+
+  public static <T> CompletableFuture<List<T>> allOf(final List<CompletableFuture<T>> futures) {
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .thenApply(v -> futures.stream().map(e -> e.join()).collect(Collectors.toList()));
+  }
+
+  /**
+   * Waits for a future of the async API, rethrowing the exception that failed it. Never called
+   * on an event loop, futures of {@link #batchGetAsync} complete off them.
+   */
+  public static <T> T join(final CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (final CompletionException exception) {
+      if (exception.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exception.getCause();
+      }
+      throw exception;
+    }
+  }
+
+  /**
+   * Groups the "hours:value" keys of the index records read, keeping the hours that overlap
+   * [from, to]. Keys are decoded in place, the value substring is the only allocation per entry.
+   */
+  public static PartedKeyValues toPartedKeyValues(
+      final long from, final long to, final String binName, final Collection<BatchRead> batchReads
+  ) {
+    final PartedKeyValues.Builder builder = PartedKeyValues.builder();
+    for (final BatchRead batchRead : batchReads) {
+      final Map<?, ?> map = batchRead.record == null ? null : batchRead.record.getMap(binName);
+      if (DU.isMapEmptyOrNull(map)) {
+        continue;
+      }
+      for (final Object key : map.keySet()) {
+        final String timedKey = key.toString();
+        final int separator = timedKey.indexOf(':');
+        final long hours = parseTimedKeyTime(timedKey, separator);
+        if (hours != INVALID_TIME && Utils.isContained(from, to, hours)) {
+          builder.add((int) hours, timedKey.substring(separator + 1));
+        }
       }
     }
-    for (final List<BatchRead> batchReads : Lists.partition(needToFetch,
-        AerospikeValues.MAX_BATCH
-    )) {
-      aerospikeClient.get(null, batchReads);
-      for (final BatchRead batchRead : batchReads) {
-        V apply = mapping.apply(batchRead);
-        batchReadCache.put(batchRead.key.userKey.toString(), apply);
-        result.put(batchRead.key.userKey.toString(), apply);
+    return builder.build();
+  }
+
+  /**
+   * Allocation free counterpart of the time part of {@link #parseTimedKey}.
+   *
+   * @param separator index of the first ':' of the key
+   * @return the time, {@link #INVALID_TIME} when it is not an int or the value is empty
+   */
+  public static long parseTimedKeyTime(final String s, final int separator) {
+    if (separator <= 0 || separator == s.length() - 1) {
+      return INVALID_TIME;
+    }
+    final boolean negative = s.charAt(0) == '-';
+    int i = negative || s.charAt(0) == '+' ? 1 : 0;
+    if (i == separator || separator - i > 10) {
+      return INVALID_TIME;
+    }
+    long value = 0L;
+    for (; i < separator; i++) {
+      final int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID_TIME;
       }
+      value = value * 10 + digit;
     }
-    return result;
+    value = negative ? -value : value;
+    return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_TIME : value;
   }
 
+  /**
+   * Issues one {@link MapOperation#putItems} per record, every entry mapped to 0 as the single
+   * item index writes do.
+   *
+   * @param entriesByRecord record user key to the map keys to put on that record
+   */
+  public static void writeMapKeys(
+      final AerospikeClient aerospikeClient,
+      final WritePolicy writePolicy,
+      final String namespace,
+      final String setName,
+      final String binName,
+      final Map<String, ? extends Collection<String>> entriesByRecord
+  ) {
+    writeMapKeys(aerospikeClient,
+        writePolicy,
+        namespace,
+        setName,
+        binName,
+        entriesByRecord,
+        null,
+        null
+    );
+  }
+
+  /**
+   * Same as above, each record written is also patched in {@code batchReadCache}, see {@link
+   * #addToCachedMap}.
+   */
+  public static void writeMapKeys(
+      final AerospikeClient aerospikeClient,
+      final WritePolicy writePolicy,
+      final String namespace,
+      final String setName,
+      final String binName,
+      final Map<String, ? extends Collection<String>> entriesByRecord,
+      final Cache<String, BatchRead> batchReadCache,
+      final MissingKeys missingKeys
+  ) {
+    entriesByRecord.forEach((recordKey, entries) -> {
+      final Map<Value, Value> items = new HashMap<>();
+      entries.forEach(e -> items.put(Value.get(e), Value.get(0)));
+      aerospikeClient.operate(writePolicy,
+          new Key(namespace, setName, recordKey),
+          MapOperation.putItems(MapPolicy.Default, binName, items)
+      );
+      if (batchReadCache != null) {
+        addToCachedMap(batchReadCache, missingKeys, recordKey, binName, entries);
+      }
+    });
+  }
+
+  /**
+   * Adds map keys just written to the cached record, when there is one, so it stays as fresh as
+   * the server without being read again. Records not cached are left to the next read, and are no
+   * longer missing. The record is copied, readers may be iterating the cached one.
+   */
+  public static void addToCachedMap(
+      final Cache<String, BatchRead> batchReadCache,
+      final MissingKeys missingKeys,
+      final String recordKey,
+      final String binName,
+      final Collection<String> entries
+  ) {
+    missingKeys.invalidate(recordKey);
+    batchReadCache.asMap().computeIfPresent(recordKey, (key, batchRead) -> {
+      if (batchRead.record == null) {
+        return batchRead;
+      }
+      final Map<Object, Object> map = new HashMap<>();
+      Optional.ofNullable(batchRead.record.getMap(binName)).ifPresent(map::putAll);
+      entries.forEach(e -> map.put(e, 0L));
+      final Map<String, Object> bins = new HashMap<>(batchRead.record.bins);
+      bins.put(binName, map);
+      final BatchRead patched = new BatchRead(batchRead.key, true);
+      patched.record = new Record(bins,
+          batchRead.record.generation,
+          batchRead.record.expiration
+      );
+      return patched;
+    });
+  }
 
   public static boolean isContained(final long from, final long to, final long hourBucket) {
     long startBucketMicrosecs = TimeUnit.HOURS.toMicros(hourBucket);
@@ -1,31 +1,49 @@
 package org.example.com.repository;
 
 import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.BatchRead;
 import com.aerospike.client.Bin;
 import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapOrder;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapReturnType;
+import com.aerospike.client.cdt.MapWriteFlags;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import io.vavr.Tuple2;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import io.vavr.control.Try;
-import it.unimi.dsi.fastutil.Function;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.AllArgsConstructor;
@@ -34,50 +52,140 @@ import lombok.NoArgsConstructor;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.example.com.data.VehicleData;
+import org.example.com.data.utils.DU;
+import org.example.com.repository.data.CacheStatistics;
 import org.example.com.repository.data.PartedKeyValues;
+import org.example.com.repository.data.RepositoryStatistics;
+import org.example.com.repository.data.RepositoryStatistics.EndpointStatistics;
+import org.example.com.repository.data.VehicleDataPage;
 import org.testng.util.Strings;
 
 @SuppressWarnings("Convert2MethodRef")
-public class VehiclesRepositoryImpl implements IVehiclesRepository {
+public class VehiclesRepositoryImpl implements IVehiclesRepository, IVehiclesRepositoryAsync {
 
   private final IDatePartitionForVehicleIndex vehicleIndex;
   private final IDatePartitionForOperatorIndex operatorIndex;
   private final IDateByOperatorPartForVehicleIndex operatorVehicleIndex;
+  private final IHourPresenceIndex vehicleHours;
+  private final IHourPresenceIndex operatorHours;
 
   private final AerospikeClient client;
 
   private static final String NAMESPACE = "test";
   private static final String SETNAME = "vehicles";
   private static final String DATA_BIN = "databin";
+  private static final String ID_BIN = "id";
+  private static final String POINTS_BIN = "points";
+  private static final String STOPPED_BIN = "stopped";
+  // buckets read at once by streamed traces, the next chunk is read while one is consumed
+  private static final int STREAM_CHUNK_HOURS = 24;
+  private static final MapPolicy POINTS_POLICY = new MapPolicy(MapOrder.KEY_ORDERED,
+      MapWriteFlags.DEFAULT
+  );
 
-  private final Cache<String, Optional<BucketHourVehicle>> cache;
+  private final LoadingCache<String, Optional<BucketHourVehicle>> cache;
+  // buckets evicted from cache, encoded off heap
+  private final OffHeapCache<Optional<BucketHourVehicle>> offHeapCache;
+  private final InFlightReads<Optional<BucketHourVehicle>> inFlight = new InFlightReads<>();
+  // BucketSummary bins of buckets not cached, small enough to stay on heap
+  private final Cache<String, BatchRead> summaryCache;
+  private final MissingKeys missingSummaries;
+  private final InFlightReads<BatchRead> summaryInFlight = new InFlightReads<>();
+  private final HourPartials operatorPartials;
+  private final HourPartials vehiclePartials;
+  private volatile boolean warmedUp = true;
+  private volatile long warmUpBuckets;
+  private volatile long warmUpBucketsRead;
+  private final Map<String, EndpointCounters> endpoints = new ConcurrentHashMap<>();
+  private final BucketWriteMode writeMode;
   private final ObjectMapper objectMapper;
   private static final TypeReference<BucketHourVehicle> TYPE_REFERENCE = new TypeReference<BucketHourVehicle>() {
   };
 
   public VehiclesRepositoryImpl(final String host, final int port) {
-    this(new AerospikeClient(host, port));
+    this(AerospikeClients.create(host, port));
+  }
+
+  public VehiclesRepositoryImpl(
+      final String host, final int port, final BucketWriteMode writeMode
+  ) {
+    this(AerospikeClients.create(host, port), writeMode);
+  }
+
+  public VehiclesRepositoryImpl(
+      final String host,
+      final int port,
+      final BucketWriteMode writeMode,
+      final CacheSettings cacheSettings
+  ) {
+    this(AerospikeClients.create(host, port), writeMode, cacheSettings);
   }
 
   public VehiclesRepositoryImpl(final AerospikeClient client) {
+    this(client, BucketWriteMode.REWRITE);
+  }
+
+  public VehiclesRepositoryImpl(final AerospikeClient client, final BucketWriteMode writeMode) {
+    this(client, writeMode, new CacheSettings());
+  }
+
+  public VehiclesRepositoryImpl(
+      final AerospikeClient client,
+      final BucketWriteMode writeMode,
+      final CacheSettings cacheSettings
+  ) {
     this.client = client;
-    this.vehicleIndex = new DatePartitionForVehicleIndexImpl(client);
-    this.operatorVehicleIndex = new DateByOperatorPartForVehicleImpl(client);
-    this.operatorIndex = new DatePartitionForOperatorIndexImpl(client);
+    this.writeMode = writeMode;
+    this.vehicleIndex = new DatePartitionForVehicleIndexImpl(client, cacheSettings);
+    this.operatorVehicleIndex = new DateByOperatorPartForVehicleImpl(client, cacheSettings);
+    this.operatorIndex = new DatePartitionForOperatorIndexImpl(client, cacheSettings);
+    this.vehicleHours = new HourPresenceIndexImpl(client,
+        HourPresenceIndexImpl.VEHICLES_SETNAME,
+        cacheSettings
+    );
+    this.operatorHours = new HourPresenceIndexImpl(client,
+        HourPresenceIndexImpl.OPERATORS_SETNAME,
+        cacheSettings
+    );
     this.objectMapper = new ObjectMapper();
     this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     this.objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT, true);
     this.objectMapper.configure(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT, true);
     this.objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
     this.objectMapper.configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true);
+    this.operatorPartials = new HourPartials(cacheSettings.getHourPartialsMaxBytes(),
+        cacheSettings
+    );
+    this.vehiclePartials = new HourPartials(cacheSettings.getHourPartialsMaxBytes(),
+        cacheSettings
+    );
+    this.offHeapCache = new OffHeapCache<>(cacheSettings.getOffHeapBucketsMaxBytes(),
+        bucket -> bucket.map(BucketHourVehicleCodec::encode).orElse(null),
+        buffer -> Optional.of(BucketHourVehicleCodec.decode(buffer))
+    );
+    this.summaryCache = Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(cacheSettings.getBucketSummariesMaxBytes())
+        .weigher(CacheWeighers.bucketSummary())
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
+        .build();
+    this.missingSummaries = new MissingKeys(TimeUnit.HOURS, cacheSettings);
     this.cache = Caffeine.newBuilder()
-        .maximumSize(1_000)
-        .expireAfterWrite(5, TimeUnit.MINUTES)
-        .expireAfterAccess(5, TimeUnit.MINUTES)
+        .recordStats()
+        .maximumWeight(cacheSettings.getBucketsMaxBytes())
+        .weigher(CacheWeighers.bucket())
+        .writer(offHeapCache.asVictimWriter())
+        .expireAfter(new PeriodExpiry<>(TimeUnit.HOURS, cacheSettings))
+        // blocking, only loads through get in rewriteBucket, on the writing thread; reads go
+        // through readFromMultipleKeysAsync
         .build(new CacheLoader<String, Optional<BucketHourVehicle>>() {
           @Nullable
           @Override
           public Optional<BucketHourVehicle> load(@NonNull final String timedKey) throws Exception {
+            final Optional<BucketHourVehicle> offHeap = offHeapCache.take(timedKey);
+            if (offHeap != null) {
+              return offHeap;
+            }
             final Record record = client.get(null,
                 new Key(VehiclesRepositoryImpl.NAMESPACE, VehiclesRepositoryImpl.SETNAME, timedKey)
             );
@@ -86,76 +194,101 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
         });
   }
 
+  @Override
   public Set<String> getOperators(final long from, final long to) {
-    final PartedKeyValues operatorsOnDatePart = operatorIndex.getOperatorsOnDatePart(from, to);
+    return Utils.join(getOperatorsAsync(from, to));
+  }
+
+  @Override
+  public CompletableFuture<Set<String>> getOperatorsAsync(final long from, final long to) {
+    final EndpointCounters counters = countCall("operators");
+    return operatorIndex.getOperatorsOnDatePartAsync(from, to).thenCompose(operatorsOnDatePart -> {
+      counters.keys.add(operatorsOnDatePart.getHours().size());
+      return resolveOperators(from, to, operatorsOnDatePart);
+    });
+  }
+
+  private CompletableFuture<Set<String>> resolveOperators(
+      final long from, final long to, final PartedKeyValues operatorsOnDatePart
+  ) {
     final IntList hours = operatorsOnDatePart.getHours();
     if (hours.isEmpty()) {
-      return Collections.emptySet();
+      return CompletableFuture.completedFuture(Collections.emptySet());
     }
     final long startIndexTsMicro = TimeUnit.HOURS.toMicros(hours.getInt(0));
     final long endIndexTsMicro = TimeUnit.HOURS.toMicros(hours.getInt(hours.size() - 1));
     final long toEndOfBucket = endIndexTsMicro + TimeUnit.HOURS.toMicros(1) - 1L;
     if (from <= startIndexTsMicro && to >= toEndOfBucket) {
-      return operatorsOnDatePart.getTimeInHoursByKeyValue().keySet();
+      return CompletableFuture.completedFuture(operatorsOnDatePart.getTimeInHoursByKeyValue()
+          .keySet());
     }
     // otherwise we have to check the edge case
     if (hours.size() == 1) {
-      return operatorsOnDatePart.getValuesOnEachHour()
-          .get(0)
-          .stream()
-          .flatMap(operatorId -> getVehiclesOfOperator(from, to, operatorId).stream())
-          .filter(e -> e.getTs() >= from && e.getTs() <= to)
-          .map(e -> e.getOperatorId())
-          .collect(Collectors.toSet());
+      return findRunningOperators(from,
+          to,
+          hours.getInt(0),
+          operatorsOnDatePart.getValuesOnEachHour().get(0)
+      );
     }
-    final Set<String> operators = new HashSet<>();
+    final List<CompletableFuture<Set<String>>> edges = new ArrayList<>(2);
     int start = 0;
     int end = hours.size();
     if (from > startIndexTsMicro) {
       start++;
       final List<String> operatorsToFind = operatorsOnDatePart.getValuesOnEachHour().get(0);
-      findIfOperatorsAreRunningAndAddToSet(from, toEndOfBucket, operatorsToFind, operators);
+      edges.add(findRunningOperators(from, to, hours.getInt(0), operatorsToFind));
     }
     if (to < toEndOfBucket) {
       end--;
       final List<String> operatorsToFind = operatorsOnDatePart.getValuesOnEachHour()
           .get(hours.size() - 1);
-      findIfOperatorsAreRunningAndAddToSet(endIndexTsMicro, to, operatorsToFind, operators);
+      edges.add(findRunningOperators(from, to, hours.getInt(hours.size() - 1), operatorsToFind));
     }
 
-    if (start >= end) {
-      return operators;
-    }
+    final Set<String> operators = new HashSet<>();
     for (int i = start; i < end; i++) {
       operators.addAll(operatorsOnDatePart.getValuesOnEachHour().get(i));
     }
-    return operators;
+    return Utils.allOf(edges).thenApply(running -> {
+      running.forEach(e -> operators.addAll(e));
+      return operators;
+    });
   }
 
+  @Override
   public NavigableSet<VehicleData> getVehiclesOfOperator(
       final long from, final long to, final String operator
   ) {
-    final PartedKeyValues vehiclesOnDateOperatorPart = operatorVehicleIndex.getVehiclesOnDateOperatorPart(from,
+    return Utils.join(getVehiclesOfOperatorAsync(from, to, operator));
+  }
+
+  @Override
+  public CompletableFuture<NavigableSet<VehicleData>> getVehiclesOfOperatorAsync(
+      final long from, final long to, final String operator
+  ) {
+    countCall("operatorVehicles");
+    return operatorPartials.get(from,
         to,
-        operator
+        operator,
+        (hoursFrom, hoursTo) -> readVehiclesOfOperatorAsync(hoursFrom, hoursTo, operator)
     );
-    final IntList hours = vehiclesOnDateOperatorPart.getHours();
-    if (hours.isEmpty()) {
-      return new TreeSet<>();
-    }
-
-    final List<String> ids = vehiclesOnDateOperatorPart.getTimeInHoursByKeyValue()
-        .entrySet()
-        .stream()
-        .flatMap(e -> VehiclesRepositoryImpl.createKeys(e.getKey(), e.getValue()))
-        .collect(Collectors.toList());
-
-    final TreeSet<VehicleData> vehicleData = new TreeSet<>();
-    readFromMultipleKeys(ids).forEach((key, maybeVehicleData) -> maybeVehicleData.ifPresent(
-        bucketHourVehicleData -> vehicleData.addAll(bucketHourVehicleData.vehicleData)));
+  }
 
-    VehiclesRepositoryImpl.trimTree(from, to, vehicleData);
-    return vehicleData;
+  private CompletableFuture<NavigableSet<VehicleData>> readVehiclesOfOperatorAsync(
+      final long from, final long to, final String operator
+  ) {
+    return getVehiclesOnDateOperatorPartAsync(from, to, operator)
+        .thenCompose(vehiclesOnDateOperatorPart -> {
+          if (vehiclesOnDateOperatorPart.getHours().isEmpty()) {
+            return CompletableFuture.completedFuture(new TreeSet<>());
+          }
+          final List<String> timedKeys = createKeys(vehiclesOnDateOperatorPart);
+          countKeys("operatorVehicles", timedKeys.size());
+          return readFromMultipleKeysAsync(timedKeys).thenApply(buckets -> mergeAndTrim(from,
+              to,
+              buckets
+          ));
+        });
   }
 
 
@@ -163,88 +296,346 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
   public Set<String> getVehiclesStoppedOfOperator(
       final long from, final long to, final String operator
   ) {
+    return Utils.join(getVehiclesStoppedOfOperatorAsync(from, to, operator));
+  }
+
+  /**
+   * Buckets answer from their {@link BucketSummary}, read with a bin projection and cached apart
+   * from the buckets. Only buckets without summary, or whose summary cannot tell because a moving
+   * point may lie inside the range edges, are read in full.
+   */
+  @Override
+  public CompletableFuture<Set<String>> getVehiclesStoppedOfOperatorAsync(
+      final long from, final long to, final String operator
+  ) {
+    final EndpointCounters counters = countCall("stoppedVehicles");
+    return getVehiclesOnDateOperatorPartAsync(from, to, operator)
+        .thenCompose(vehiclesOnDateOperatorPart -> {
+          if (vehiclesOnDateOperatorPart.getHours().isEmpty()) {
+            return CompletableFuture.completedFuture(new TreeSet<>());
+          }
+          final Map<String, Boolean> stoppedByTimedKey = new HashMap<>();
+          final List<String> summaries = new ArrayList<>();
+          final List<String> timedKeys = createKeys(vehiclesOnDateOperatorPart);
+          counters.keys.add(timedKeys.size());
+          for (final String timedKey : timedKeys) {
+            final Optional<BucketHourVehicle> cached = cache.getIfPresent(timedKey);
+            if (cached != null) {
+              cached.ifPresent(bucket -> stoppedByTimedKey.put(timedKey,
+                  isStoppedOnTimeFrame(from, to, bucket)
+              ));
+            } else {
+              summaries.add(timedKey);
+            }
+          }
+          return Utils.doBatchReadWithCacheAsync(client,
+              summaryCache,
+              missingSummaries,
+              summaryInFlight,
+              VehiclesRepositoryImpl.NAMESPACE,
+              VehiclesRepositoryImpl.SETNAME,
+              summaries,
+              BucketSummary.BINS
+          ).thenCompose(batchReads -> {
+            final List<String> undecided = new ArrayList<>();
+            for (final BatchRead batchRead : batchReads) {
+              final String timedKey = batchRead.key.userKey.toString();
+              final Optional<Boolean> stopped = BucketSummary.fromRecord(batchRead.record)
+                  .flatMap(summary -> summary.isStoppedOn(from, to));
+              if (stopped.isPresent()) {
+                stoppedByTimedKey.put(timedKey, stopped.get());
+              } else if (batchRead.record != null) {
+                undecided.add(timedKey);
+              }
+            }
+            return readFromMultipleKeysAsync(undecided).thenApply(buckets -> {
+              buckets.forEach((timedKey, bucket) -> bucket.ifPresent(e -> stoppedByTimedKey.put(
+                  timedKey,
+                  isStoppedOnTimeFrame(from, to, e)
+              )));
+              return stoppedVehicles(stoppedByTimedKey);
+            });
+          });
+        });
+  }
+
+  /**
+   * Vehicles of the operator on the hours it has points in, see {@link IHourPresenceIndex}.
+   */
+  private CompletableFuture<PartedKeyValues> getVehiclesOnDateOperatorPartAsync(
+      final long from, final long to, final String operator
+  ) {
+    return getOperatorHoursAsync(from, to, operator).thenCompose(hours -> {
+      if (hours.isEmpty()) {
+        return CompletableFuture.completedFuture(PartedKeyValues.builder().build());
+      }
+      return operatorVehicleIndex.getVehiclesOnDateOperatorPartAsync(from, to, operator, hours);
+    });
+  }
 
-    final PartedKeyValues vehiclesOnDateOperatorPart = operatorVehicleIndex.getVehiclesOnDateOperatorPart(from,
+  /**
+   * Hours the vehicle has points in. Pages of {@link #vehicleHours} written before it existed fall
+   * back to the daily vehicles index.
+   */
+  private CompletableFuture<IntList> getVehicleHoursAsync(
+      final long from, final long to, final String vehicleId
+  ) {
+    return vehicleHours.getHoursAsync(from,
         to,
-        operator
+        vehicleId,
+        (fallbackFrom, fallbackTo) -> vehicleIndex.getVehiclesOnDatePartAsync(fallbackFrom,
+            fallbackTo
+        ).thenApply(vehiclesOnDatePart -> vehiclesOnDatePart.getTimeInHoursByKeyValue()
+            .getOrDefault(vehicleId, new IntArrayList()))
     );
-    final IntList hours = vehiclesOnDateOperatorPart.getHours();
-    if (hours.isEmpty()) {
-      return new TreeSet<>();
-    }
-    final List<String> ids = vehiclesOnDateOperatorPart.getTimeInHoursByKeyValue()
-        .entrySet()
-        .stream()
-        .flatMap(e -> VehiclesRepositoryImpl.createKeys(e.getKey(), e.getValue()))
-        .collect(Collectors.toList());
+  }
 
+  /**
+   * Hours the operator has points in. Pages of {@link #operatorHours} written before it existed
+   * fall back to the daily operators index.
+   */
+  private CompletableFuture<IntList> getOperatorHoursAsync(
+      final long from, final long to, final String operator
+  ) {
+    return operatorHours.getHoursAsync(from,
+        to,
+        operator,
+        (fallbackFrom, fallbackTo) -> operatorIndex.getOperatorsOnDatePartAsync(fallbackFrom,
+            fallbackTo
+        ).thenApply(operatorsOnDatePart -> operatorsOnDatePart.getTimeInHoursByKeyValue()
+            .getOrDefault(operator, new IntArrayList()))
+    );
+  }
+
+  /**
+   * A vehicle is stopped when every one of its buckets in the range is.
+   */
+  private static Set<String> stoppedVehicles(final Map<String, Boolean> stoppedByTimedKey) {
     final Map<String, Boolean> result = new HashMap<>();
-    readFromMultipleKeys(ids).entrySet()
-        .parallelStream()
-        .map(e -> isStoppedOnTimeFrame(from, to, e.getKey(), e.getValue()))
-        .forEach(e -> {
-          final String vehicleId = e._1;
-          final boolean stoppedOnTimeFrame = e._2;
-          result.computeIfAbsent(vehicleId, s -> stoppedOnTimeFrame);
-          result.computeIfPresent(vehicleId, (k, v) -> v & stoppedOnTimeFrame);
-        });
+    stoppedByTimedKey.forEach((timedKey, stoppedOnTimeFrame) -> Utils.parseTimedKey(timedKey)
+        .forEach(e -> result.merge(e._2, stoppedOnTimeFrame, (a, b) -> a & b)));
 
     return result.entrySet()
         .stream()
         .filter(e -> e.getValue())
         .map(e -> e.getKey())
         .collect(Collectors.toSet());
+  }
+
+  /**
+   * @return true if the bucket has points in [from, to] and all of them are stopped
+   */
+  private static boolean isStoppedOnTimeFrame(
+      final long from, final long to, final BucketHourVehicle bucket
+  ) {
+    int inRange = 0;
+    for (final VehicleData vehicleData : bucket.vehicleData) {
+      if (vehicleData.getTs() > to) {
+        break;
+      }
+      if (vehicleData.getTs() >= from) {
+        if (!isVehicleStopped(vehicleData)) {
+          return false;
+        }
+        inRange++;
+      }
+    }
+    return inRange > 0;
+  }
+
+  @Override
+  public NavigableSet<VehicleData> getVehiclesDataWithId(
+      final long from, final long to, final String vehicleId
+  ) {
+    return Utils.join(getVehiclesDataWithIdAsync(from, to, vehicleId));
+  }
+
+  @Override
+  public CompletableFuture<NavigableSet<VehicleData>> getVehiclesDataWithIdAsync(
+      final long from, final long to, final String vehicleId
+  ) {
+    countCall("vehicle");
+    return vehiclePartials.get(from,
+        to,
+        vehicleId,
+        (hoursFrom, hoursTo) -> readVehiclesDataWithIdAsync(hoursFrom, hoursTo, vehicleId)
+    );
+  }
+
+  private CompletableFuture<NavigableSet<VehicleData>> readVehiclesDataWithIdAsync(
+      final long from, final long to, final String vehicleId
+  ) {
+    return getVehicleHoursAsync(from, to, vehicleId).thenCompose(hours -> {
+      if (hours.isEmpty()) {
+        return CompletableFuture.completedFuture(Collections.emptyNavigableSet());
+      }
+      final List<String> ids = createKeys(vehicleId, hours).collect(Collectors.toList());
+      countKeys("vehicle", ids.size());
+      return readFromMultipleKeysAsync(ids).thenApply(buckets -> mergeAndTrim(from, to, buckets));
+    });
+  }
+
+  @Override
+  public CompletableFuture<VehicleDataPage> getVehiclesDataWithIdPageAsync(
+      final long from,
+      final long to,
+      final String vehicleId,
+      final String cursor,
+      final int limit
+  ) {
+    final EndpointCounters counters = countCall("vehiclePage");
+    final VehicleData after = PageCursor.decode(cursor);
+    return getVehicleHoursAsync(after == null ? from : Math.max(from, after.getTs()),
+        to,
+        vehicleId
+    ).thenCompose(hours -> readPage(from, to, after, limit, hours, 0, 1, chunk -> {
+      counters.keys.add(chunk.size());
+      return CompletableFuture.completedFuture(createKeys(vehicleId, chunk).collect(Collectors
+          .toList()));
+    }, new TreeSet<>()));
+  }
+
+  @Override
+  public CompletableFuture<VehicleDataPage> getVehiclesOfOperatorPageAsync(
+      final long from,
+      final long to,
+      final String operator,
+      final String cursor,
+      final int limit
+  ) {
+    final EndpointCounters counters = countCall("operatorVehiclesPage");
+    final VehicleData after = PageCursor.decode(cursor);
+    return getOperatorHoursAsync(after == null ? from : Math.max(from, after.getTs()),
+        to,
+        operator
+    ).thenCompose(hours -> readPage(from, to, after, limit, hours, 0, 1, chunk ->
+        operatorVehicleIndex.getVehiclesOnDateOperatorPartAsync(from, to, operator, chunk)
+            .thenApply(vehiclesOnDateOperatorPart -> {
+              final List<String> timedKeys = createKeys(vehiclesOnDateOperatorPart);
+              counters.keys.add(timedKeys.size());
+              return timedKeys;
+            }), new TreeSet<>()));
+  }
 
+  /**
+   * Fills the page reading the hours in chunks, one hour first then twice as many each time up to
+   * {@link #STREAM_CHUNK_HOURS}, so a small page reads few buckets and a large one few batches.
+   *
+   * @param keysOf bucket keys of a chunk of hours
+   */
+  private CompletableFuture<VehicleDataPage> readPage(
+      final long from,
+      final long to,
+      final VehicleData after,
+      final int limit,
+      final IntList hours,
+      final int start,
+      final int chunkHours,
+      final Function<IntList, CompletableFuture<List<String>>> keysOf,
+      final TreeSet<VehicleData> page
+  ) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid page size " + limit);
+    }
+    if (start >= hours.size()) {
+      return CompletableFuture.completedFuture(new VehicleDataPage(page, null));
+    }
+    final int end = Math.min(start + chunkHours, hours.size());
+    return keysOf.apply(hours.subList(start, end))
+        .thenCompose(keys -> readFromMultipleKeysAsync(keys))
+        .thenCompose(buckets -> {
+          final NavigableSet<VehicleData> points = mergeAndTrim(from, to, buckets);
+          final Iterator<VehicleData> iterator = (after == null ? points
+              : points.tailSet(after, false)).iterator();
+          while (iterator.hasNext() && page.size() < limit) {
+            page.add(iterator.next());
+          }
+          if (page.size() < limit) {
+            return readPage(from,
+                to,
+                after,
+                limit,
+                hours,
+                end,
+                Math.min(2 * chunkHours, STREAM_CHUNK_HOURS),
+                keysOf,
+                page
+            );
+          }
+          final boolean more = iterator.hasNext() || end < hours.size();
+          return CompletableFuture.completedFuture(new VehicleDataPage(page,
+              more ? PageCursor.encode(page.last()) : null
+          ));
+        });
   }
 
-  private static final Tuple2 EMPTY = new Tuple2<>("", false);
+  @Override
+  public CompletableFuture<Void> streamVehiclesDataWithIdAsync(
+      final long from,
+      final long to,
+      final String vehicleId,
+      final Function<NavigableSet<VehicleData>, CompletableFuture<Void>> consumer
+  ) {
+    final EndpointCounters counters = countCall("vehicleStream");
+    return getVehicleHoursAsync(from, to, vehicleId).thenCompose(hours -> {
+      counters.keys.add(hours.size());
+      return streamChunks(from, to, vehicleId, hours, 0, readChunk(vehicleId, hours, 0), consumer);
+    });
+  }
 
-  private static final Tuple2<String, Boolean> isStoppedOnTimeFrame(
+  private CompletableFuture<Void> streamChunks(
       final long from,
       final long to,
-      final String timedKey,
-      final Optional<BucketHourVehicle> bucketHourVehicle
+      final String vehicleId,
+      final IntList hours,
+      final int start,
+      final CompletableFuture<Map<String, Optional<BucketHourVehicle>>> chunk,
+      final Function<NavigableSet<VehicleData>, CompletableFuture<Void>> consumer
   ) {
-    final Optional<Tuple2<Integer, String>> timedKeyParsed = Utils.parseTimedKey(timedKey)
-        .toJavaOptional();
-    if (timedKeyParsed.isPresent() && bucketHourVehicle.isPresent()) {
-      final String vehicleId = timedKeyParsed.get()._2;
-      final BucketHourVehicle bucket = bucketHourVehicle.get();
-      int stopped = bucket.stopped;
-      final TreeSet<VehicleData> vehicleData = new TreeSet<>(bucket.vehicleData);
-      while (!vehicleData.isEmpty() && from > vehicleData.first().getTs()) {
-        if (isVehicleStopped(vehicleData.pollFirst())) {
-          stopped--;
+    if (start >= hours.size()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return chunk.thenCompose(buckets -> {
+      final CompletableFuture<Map<String, Optional<BucketHourVehicle>>> next = readChunk(vehicleId,
+          hours,
+          start + STREAM_CHUNK_HOURS
+      );
+      CompletableFuture<Void> consumed = CompletableFuture.completedFuture(null);
+      for (int i = start; i < Math.min(start + STREAM_CHUNK_HOURS, hours.size()); i++) {
+        final Optional<BucketHourVehicle> bucket = buckets.get(Utils.createTimedKey(hours.getInt(i),
+            vehicleId
+        ));
+        if (bucket == null || !bucket.isPresent()) {
+          continue;
         }
-      }
-      while (!vehicleData.isEmpty() && to < vehicleData.last().getTs()) {
-        if (isVehicleStopped(vehicleData.pollLast())) {
-          stopped--;
+        final NavigableSet<VehicleData> points = HourPartials.slice(bucket.get().vehicleData,
+            from,
+            to
+        );
+        if (!points.isEmpty()) {
+          consumed = consumed.thenCompose(v -> consumer.apply(points));
         }
       }
-      return new Tuple2<>(vehicleId, vehicleData.size() > 0 && stopped == vehicleData.size());
-    }
-    return EMPTY;
+      return consumed.thenCompose(v -> streamChunks(from,
+          to,
+          vehicleId,
+          hours,
+          start + STREAM_CHUNK_HOURS,
+          next,
+          consumer
+      ));
+    });
   }
 
-  public NavigableSet<VehicleData> getVehiclesDataWithId(
-      final long from, final long to, final String vehicleId
+  private CompletableFuture<Map<String, Optional<BucketHourVehicle>>> readChunk(
+      final String vehicleId, final IntList hours, final int start
   ) {
-    final PartedKeyValues vehiclesOnDatePart = vehicleIndex.getVehiclesOnDatePart(from, to);
-    if (vehiclesOnDatePart.getTimeInHoursByKeyValue().containsKey(vehicleId)) {
-      final IntList intList = vehiclesOnDatePart.getTimeInHoursByKeyValue().get(vehicleId);
-      final List<String> ids = intList.stream()
-          .map(e -> Utils.createTimedKey(e, vehicleId))
-          .collect(Collectors.toList());
-      final TreeSet<VehicleData> vehicleData = new TreeSet<>();
-      readFromMultipleKeys(ids).forEach((key, maybeVehicleData) -> {
-        maybeVehicleData.ifPresent(bucketHourVehicleData -> vehicleData.addAll(bucketHourVehicleData.vehicleData));
-      });
-
-      VehiclesRepositoryImpl.trimTree(from, to, vehicleData);
-      return vehicleData;
+    if (start >= hours.size()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
     }
-    return Collections.emptyNavigableSet();
+    return readFromMultipleKeysAsync(createKeys(vehicleId,
+        hours.subList(start, Math.min(start + STREAM_CHUNK_HOURS, hours.size()))
+    ).collect(Collectors.toList()));
   }
 
   /**
@@ -254,33 +645,149 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
    * This method is here to help to populate the data base only.
    */
   public void writeData(final VehicleData vehicleData) {
-    final long ts = vehicleData.getTs();
-    final long hours = TimeUnit.MICROSECONDS.toHours(ts);
-    final String timedKey = Utils.createTimedKey(hours, vehicleData.getVehicleId());
-
-    final BucketHourVehicle vehiclesOnBucket = cache.get(timedKey,
-        (Function<String, Optional<BucketHourVehicle>>) key -> Optional.empty()
-    )
-        .orElseGet(() -> new BucketHourVehicle(vehicleData.getVehicleId(), new TreeSet<>(), 0));
-
-    vehiclesOnBucket.vehicleData.add(vehicleData);
-    if (isVehicleStopped(vehicleData)) {
-      vehiclesOnBucket.stopped++;
+    writeBatch(Collections.singletonList(vehicleData));
+  }
+
+  /**
+   * Same caveats as {@link #writeData(VehicleData)}. Points are grouped by hour bucket, each
+   * bucket is written once and each index record receives a single multi item map operation.
+   */
+  @Override
+  public void writeBatch(final Collection<VehicleData> vehicleData) {
+    if (DU.isCollectionEmptyOrNull(vehicleData)) {
+      return;
+    }
+    final Map<String, List<VehicleData>> byTimedKey = new LinkedHashMap<>();
+    for (final VehicleData data : vehicleData) {
+      final long hours = TimeUnit.MICROSECONDS.toHours(data.getTs());
+      DU.appendToCollection(byTimedKey,
+          Utils.createTimedKey(hours, data.getVehicleId()),
+          data,
+          () -> new ArrayList<>()
+      );
     }
 
+    byTimedKey.forEach((timedKey, points) -> {
+      if (writeMode == BucketWriteMode.APPEND) {
+        appendToBucket(timedKey, points);
+      } else {
+        rewriteBucket(timedKey, points);
+      }
+    });
+
+    vehicleIndex.writeVehiclesOnDatePart(vehicleData);
+    operatorIndex.writeOperatorsOnDatePart(vehicleData);
+    operatorVehicleIndex.writeVehiclesOnDatePartOperator(vehicleData);
+    vehicleHours.writeHours(vehicleData, VehicleData::getVehicleId);
+    operatorHours.writeHours(vehicleData, VehicleData::getOperatorId);
+
+    for (final VehicleData data : vehicleData) {
+      final long hours = TimeUnit.MICROSECONDS.toHours(data.getTs());
+      vehiclePartials.invalidate(hours, data.getVehicleId());
+      operatorPartials.invalidate(hours, data.getOperatorId());
+    }
+  }
+
+  private void rewriteBucket(final String timedKey, final List<VehicleData> points) {
+    final BucketHourVehicle vehiclesOnBucket = cache.get(timedKey)
+        .orElseGet(() -> new BucketHourVehicle(points.get(0).getVehicleId(), new TreeSet<>(), 0));
+
+    for (final VehicleData vehicleData : points) {
+      vehiclesOnBucket.vehicleData.add(vehicleData);
+      if (isVehicleStopped(vehicleData)) {
+        vehiclesOnBucket.stopped++;
+      }
+    }
+
+    final List<Bin> bins = new ArrayList<>(9);
+    bins.add(mapToDataBin(vehiclesOnBucket));
+    bins.add(Bin.asNull(VehiclesRepositoryImpl.POINTS_BIN));
+    bins.add(Bin.asNull(VehiclesRepositoryImpl.STOPPED_BIN));
+    bins.addAll(Arrays.asList(BucketSummary.of(vehiclesOnBucket.vehicleData).toBins()));
     client.put(WritePolicies.getSendKeyPolicy(),
         new Key(VehiclesRepositoryImpl.NAMESPACE, VehiclesRepositoryImpl.SETNAME, timedKey),
-        mapToDataBin(vehiclesOnBucket)
+        bins.toArray(new Bin[0])
     );
     cache.put(timedKey, Optional.of(vehiclesOnBucket));
+    invalidateSummary(timedKey);
+  }
 
-    vehicleIndex.writeVehicleOnDatePart(vehicleData.getTs(), vehicleData.getVehicleId());
-    operatorIndex.writeOperatorsOnDatePart(vehicleData.getTs(), vehicleData.getOperatorId());
-    operatorVehicleIndex.writeVehicleOnDatePartOperator(vehicleData.getTs(),
-        vehicleData.getOperatorId(),
-        vehicleData.getVehicleId()
+  /**
+   * The cached bucket, if any, is dropped instead of patched, the next read loads the record with
+   * every appended point. The {@link BucketSummary} is merged in the same operate, and dropped
+   * after it when it does not cover the bucket: the bucket had no summary yet, or a stopped point
+   * replaced a moving one the summary may still point to.
+   */
+  private void appendToBucket(final String timedKey, final List<VehicleData> points) {
+    final Map<Value, Value> items = new HashMap<>();
+    final List<Value> stoppedKeys = new ArrayList<>();
+    for (final VehicleData vehicleData : points) {
+      items.put(Value.get(vehicleData.getTs()),
+          Value.get(BucketHourVehicleCodec.encodePoint(vehicleData))
+      );
+      if (isVehicleStopped(vehicleData)) {
+        stoppedKeys.add(Value.get(vehicleData.getTs()));
+      }
+    }
+    final List<Operation> operations = new ArrayList<>(13);
+    operations.add(Operation.put(new Bin(VehiclesRepositoryImpl.ID_BIN,
+        points.get(0).getVehicleId()
+    )));
+    if (!stoppedKeys.isEmpty()) {
+      // the points replaced, read before the put
+      operations.add(MapOperation.getByKeyList(VehiclesRepositoryImpl.POINTS_BIN,
+          stoppedKeys,
+          MapReturnType.VALUE
+      ));
+    }
+    operations.add(MapOperation.putItems(VehiclesRepositoryImpl.POINTS_POLICY,
+        VehiclesRepositoryImpl.POINTS_BIN,
+        items
+    ));
+    if (!stoppedKeys.isEmpty()) {
+      operations.add(Operation.add(new Bin(VehiclesRepositoryImpl.STOPPED_BIN,
+          stoppedKeys.size()
+      )));
+    }
+    operations.addAll(BucketSummary.of(points).toAppendOperations());
+    final Key key = new Key(VehiclesRepositoryImpl.NAMESPACE,
+        VehiclesRepositoryImpl.SETNAME,
+        timedKey
     );
+    final Record record = client.operate(WritePolicies.getRespondAllOpsPolicy(),
+        key,
+        operations.toArray(new Operation[0])
+    );
+    if (!BucketSummary.isMergedOn(record) || (!stoppedKeys.isEmpty() && replacesMoving(record))) {
+      client.put(WritePolicies.getSendKeyPolicy(), key, BucketSummary.toNullBins());
+    }
+    cache.invalidate(timedKey);
+    offHeapCache.invalidate(timedKey);
+    invalidateSummary(timedKey);
+  }
+
+  private void invalidateSummary(final String timedKey) {
+    summaryCache.invalidate(timedKey);
+    missingSummaries.invalidate(timedKey);
+  }
 
+  /**
+   * @return true if a point the append replaced with a stopped one was moving
+   */
+  private static boolean replacesMoving(final Record record) {
+    final Object replaced = BucketSummary.firstResult(record, VehiclesRepositoryImpl.POINTS_BIN);
+    if (!(replaced instanceof List)) {
+      return false;
+    }
+    for (final Object point : (List<?>) replaced) {
+      if (point instanceof byte[] && !isVehicleStopped(BucketHourVehicleCodec.decodePoint(0,
+          null,
+          (byte[]) point
+      ))) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private static void trimTree(
@@ -294,47 +801,144 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
     }
   }
 
-  private Map<String, Optional<BucketHourVehicle>> readFromMultipleKeys(final Collection<String> timedKeys) {
-    final Map<String, Optional<BucketHourVehicle>> timedKeysBuckets = new HashMap<>();
-    Utils.doBatchReadWithCacheMapped(client,
+  private CompletableFuture<Map<String, Optional<BucketHourVehicle>>> readFromMultipleKeysAsync(
+      final Collection<String> timedKeys
+  ) {
+    return Utils.doBatchReadWithCacheMappedAsync(client,
         cache,
+        offHeapCache,
+        inFlight,
         VehiclesRepositoryImpl.NAMESPACE,
         VehiclesRepositoryImpl.SETNAME,
         timedKeys,
         batchRead -> mapFromRecord(batchRead.record)
-    ).forEach((key, value) -> timedKeysBuckets.put(key, value));
-    return timedKeysBuckets;
+    );
+  }
+
+  private static NavigableSet<VehicleData> mergeAndTrim(
+      final long from, final long to, final Map<String, Optional<BucketHourVehicle>> buckets
+  ) {
+    final TreeSet<VehicleData> vehicleData = new TreeSet<>();
+    buckets.forEach((key, maybeVehicleData) -> maybeVehicleData.ifPresent(
+        bucketHourVehicleData -> vehicleData.addAll(bucketHourVehicleData.vehicleData)));
+    VehiclesRepositoryImpl.trimTree(from, to, vehicleData);
+    return vehicleData;
   }
 
   private Bin mapToDataBin(final BucketHourVehicle data) {
-    final String dataJson = Try.of(() -> objectMapper.writeValueAsString(data)).getOrElse("");
-    return new Bin(VehiclesRepositoryImpl.DATA_BIN, dataJson);
+    return new Bin(VehiclesRepositoryImpl.DATA_BIN, BucketHourVehicleCodec.encode(data));
   }
 
+  /**
+   * Buckets are stored as {@link BucketHourVehicleCodec} blobs. Records written before that were
+   * JSON strings, those are still read transparently. Points appended with {@link
+   * BucketWriteMode#APPEND} are merged on top.
+   */
   private Optional<BucketHourVehicle> mapFromRecord(final Record record) {
     return Optional.ofNullable(record)
-        .map(e -> e.getString(VehiclesRepositoryImpl.DATA_BIN))
-        .flatMap(e -> Try.of(() -> (BucketHourVehicle) objectMapper.readValue(e,
-            VehiclesRepositoryImpl.TYPE_REFERENCE
-        ))
+        .flatMap(e -> Try.of(() -> decodeRecord(e))
             .onFailure(t -> t.printStackTrace())
             .toJavaOptional());
   }
 
+  private BucketHourVehicle decodeRecord(final Record record) throws Exception {
+    final Object dataBin = record.getValue(VehiclesRepositoryImpl.DATA_BIN);
+    final Map<?, ?> points = record.getMap(VehiclesRepositoryImpl.POINTS_BIN);
+    if (DU.isMapEmptyOrNull(points)) {
+      return decodeDataBin(dataBin);
+    }
+    final String id = record.getString(VehiclesRepositoryImpl.ID_BIN);
+    final BucketHourVehicle bucket = dataBin == null ? new BucketHourVehicle(id,
+        new TreeSet<>(),
+        0
+    ) : decodeDataBin(dataBin);
+    points.forEach((ts, point) -> bucket.vehicleData.add(BucketHourVehicleCodec.decodePoint(
+        ((Number) ts).longValue(),
+        id,
+        (byte[]) point
+    )));
+    bucket.stopped += record.getInt(VehiclesRepositoryImpl.STOPPED_BIN);
+    return bucket;
+  }
 
-  private void findIfOperatorsAreRunningAndAddToSet(
-      final long from, final long to, final List<String> operators, final Set<String> toAdd
+  private BucketHourVehicle decodeDataBin(final Object value) throws Exception {
+    if (value instanceof byte[]) {
+      return BucketHourVehicleCodec.decode((byte[]) value);
+    }
+    return objectMapper.readValue(value.toString(), VehiclesRepositoryImpl.TYPE_REFERENCE);
+  }
+
+
+  /**
+   * Answers an edge hour from the minute activity of the operator index. A minute partly outside
+   * [from, to] is ambiguous, operators only active in such minutes, or without minute activity at
+   * all, are checked against the points of their vehicles in that hour.
+   */
+  private CompletableFuture<Set<String>> findRunningOperators(
+      final long from, final long to, final int hour, final List<String> operators
   ) {
-    operators.forEach(e -> findIfOperatorIsRunningAndAddToSet(from, to, e, toAdd));
+    return operatorIndex.getOperatorMinutesAsync(hour).thenCompose(minutesByOperator -> {
+      final Set<String> running = new HashSet<>();
+      final List<String> ambiguous = new ArrayList<>();
+      for (final String operator : operators) {
+        final IntList minutes = minutesByOperator.get(operator);
+        final Optional<Boolean> isRunning = minutes == null ? Optional.empty()
+            : isRunningOnMinutes(from, to, minutes);
+        if (!isRunning.isPresent()) {
+          ambiguous.add(operator);
+        } else if (isRunning.get()) {
+          running.add(operator);
+        }
+      }
+      final long hourStart = TimeUnit.HOURS.toMicros(hour);
+      final long hourEnd = hourStart + TimeUnit.HOURS.toMicros(1) - 1L;
+      return scanRunningOperators(Math.max(from, hourStart), Math.min(to, hourEnd), ambiguous)
+          .thenApply(scanned -> {
+            running.addAll(scanned);
+            return running;
+          });
+    });
   }
 
-  private void findIfOperatorIsRunningAndAddToSet(
-      final long from, final long to, final String operator, final Set<String> toAdd
+  private static Optional<Boolean> isRunningOnMinutes(
+      final long from, final long to, final IntList minutes
   ) {
-    getVehiclesOfOperator(from, to, operator).stream()
+    boolean ambiguous = false;
+    for (int i = 0; i < minutes.size(); i++) {
+      final long minuteStart = TimeUnit.MINUTES.toMicros(minutes.getInt(i));
+      final long minuteEnd = minuteStart + TimeUnit.MINUTES.toMicros(1) - 1L;
+      if (minuteStart >= from && minuteEnd <= to) {
+        return Optional.of(true);
+      }
+      if (minuteEnd >= from && minuteStart <= to) {
+        ambiguous = true;
+      }
+    }
+    return ambiguous ? Optional.empty() : Optional.of(false);
+  }
+
+  /**
+   * @return the operators having at least one point in [from, to]
+   */
+  private CompletableFuture<Set<String>> scanRunningOperators(
+      final long from, final long to, final List<String> operators
+  ) {
+    final List<CompletableFuture<NavigableSet<VehicleData>>> futures = operators.stream()
+        .map(operator -> getVehiclesOfOperatorAsync(from, to, operator))
+        .collect(Collectors.toList());
+    return Utils.allOf(futures).thenApply(vehiclesOfOperators -> vehiclesOfOperators.stream()
+        .flatMap(e -> e.stream())
         .filter(e -> e.getTs() >= from && e.getTs() <= to)
         .map(e -> e.getOperatorId())
-        .forEach(e -> toAdd.add(e));
+        .collect(Collectors.toSet()));
+  }
+
+  private static List<String> createKeys(final PartedKeyValues partedKeyValues) {
+    return partedKeyValues.getTimeInHoursByKeyValue()
+        .entrySet()
+        .stream()
+        .flatMap(e -> VehiclesRepositoryImpl.createKeys(e.getKey(), e.getValue()))
+        .collect(Collectors.toList());
   }
 
   private static Stream<String> createKeys(final String key, final IntList timeinHours) {
@@ -346,6 +950,8 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
     operatorVehicleIndex.deleteAllData();
     operatorIndex.deleteAllData();
     vehicleIndex.deleteAllData();
+    vehicleHours.deleteAllData();
+    operatorHours.deleteAllData();
     Utils.deleteAll(client, VehiclesRepositoryImpl.NAMESPACE, VehiclesRepositoryImpl.SETNAME);
   }
 
@@ -354,7 +960,131 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
     operatorVehicleIndex.invalidateAllCache();
     operatorIndex.invalidateAllCache();
     vehicleIndex.invalidateAllCache();
+    vehicleHours.invalidateAllCache();
+    operatorHours.invalidateAllCache();
     cache.asMap().clear();
+    summaryCache.asMap().clear();
+    missingSummaries.clear();
+    offHeapCache.clear();
+    operatorPartials.clear();
+    vehiclePartials.clear();
+  }
+
+  @Override
+  public long getSkippedIndexWrites() {
+    return operatorVehicleIndex.getSkippedWrites() + operatorIndex.getSkippedWrites()
+        + vehicleIndex.getSkippedWrites() + vehicleHours.getSkippedWrites()
+        + operatorHours.getSkippedWrites();
+  }
+
+  @Override
+  public long getSavedMissingIndexReads() {
+    return operatorVehicleIndex.getSavedMissingReads() + operatorIndex.getSavedMissingReads()
+        + vehicleIndex.getSavedMissingReads() + vehicleHours.getSavedMissingReads()
+        + operatorHours.getSavedMissingReads() + missingSummaries.getSaved();
+  }
+
+  @Override
+  public boolean isWarmedUp() {
+    return warmedUp;
+  }
+
+  @Override
+  public RepositoryStatistics getStatistics() {
+    final RepositoryStatistics statistics = new RepositoryStatistics();
+    final List<CacheStatistics> caches = new ArrayList<>();
+    caches.add(CacheStatistics.of("buckets", cache));
+    caches.add(CacheStatistics.of("bucketSummaries", summaryCache));
+    caches.add(operatorPartials.getStatistics("operatorHourPartials"));
+    caches.add(vehiclePartials.getStatistics("vehicleHourPartials"));
+    caches.addAll(operatorIndex.getCacheStatistics());
+    caches.addAll(vehicleIndex.getCacheStatistics());
+    caches.addAll(operatorVehicleIndex.getCacheStatistics());
+    caches.addAll(vehicleHours.getCacheStatistics());
+    caches.addAll(operatorHours.getCacheStatistics());
+    statistics.setCaches(caches);
+    statistics.setOffHeapBuckets(offHeapCache.size());
+    statistics.setBatchReads(Utils.getBatchReads());
+    statistics.setBatchReadKeys(Utils.getBatchReadKeys());
+    statistics.setWarmUpBuckets(warmUpBuckets);
+    statistics.setWarmUpBucketsRead(warmUpBucketsRead);
+    statistics.setSkippedIndexWrites(getSkippedIndexWrites());
+    statistics.setSavedMissingIndexReads(getSavedMissingIndexReads());
+    statistics.setWarmedUp(warmedUp);
+    final Map<String, EndpointStatistics> endpointStatistics = new TreeMap<>();
+    endpoints.forEach((endpoint, counters) -> endpointStatistics.put(endpoint,
+        new EndpointStatistics(counters.calls.sum(), counters.keys.sum())
+    ));
+    statistics.setEndpoints(endpointStatistics);
+    return statistics;
+  }
+
+  private EndpointCounters countCall(final String endpoint) {
+    final EndpointCounters counters = endpoints.computeIfAbsent(endpoint,
+        e -> new EndpointCounters()
+    );
+    counters.calls.increment();
+    return counters;
+  }
+
+  private void countKeys(final String endpoint, final int keys) {
+    endpoints.computeIfAbsent(endpoint, e -> new EndpointCounters()).keys.add(keys);
+  }
+
+  /**
+   * Fills the caches with the last {@code days} days: the operator index, the hours and the
+   * vehicles index of every operator found, then buckets from the newest hour back until the
+   * bucket cache holds {@code maxBytes}, or is full. Buckets are read one batch partition per
+   * parallel read at a time, see {@link BatchSettings}, and progress is counted in {@link
+   * #getStatistics()} after each. {@link #isWarmedUp()} is false until it completes.
+   */
+  public CompletableFuture<Void> warmUp(final int days, final long maxBytes) {
+    warmedUp = false;
+    warmUpBuckets = 0;
+    warmUpBucketsRead = 0;
+    final long to = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    final long from = to - TimeUnit.DAYS.toMicros(days);
+    return operatorIndex.getOperatorsOnDatePartAsync(from, to)
+        .thenApply(operators -> operators.getTimeInHoursByKeyValue().keySet())
+        .thenCompose(operators -> Utils.allOf(operators.stream()
+            .map(operator -> getVehiclesOnDateOperatorPartAsync(from, to, operator))
+            .collect(Collectors.toList())))
+        .thenCompose(vehiclesOfOperators -> {
+          final List<String> timedKeys = vehiclesOfOperators.stream()
+              .flatMap(e -> createKeys(e).stream())
+              .distinct()
+              .sorted(Comparator.comparingLong(
+                  (String e) -> Utils.parseTimedKeyTime(e, e.indexOf(':'))).reversed())
+              .collect(Collectors.toList());
+          warmUpBuckets = timedKeys.size();
+          return warmUpBuckets(timedKeys, 0, Math.min(maxBytes, getBucketCacheCapacity()));
+        })
+        .whenComplete((v, throwable) -> warmedUp = true);
+  }
+
+  private CompletableFuture<Void> warmUpBuckets(
+      final List<String> timedKeys, final int offset, final long maxBytes
+  ) {
+    if (offset >= timedKeys.size() || getBucketCacheBytes() >= maxBytes) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final BatchSettings batch = Utils.getBatchSettings();
+    final int end = Math.min(offset + batch.getPartitionSize() * batch.getParallelism(),
+        timedKeys.size()
+    );
+    return readFromMultipleKeysAsync(timedKeys.subList(offset, end)).thenCompose(buckets -> {
+      warmUpBucketsRead = end;
+      return warmUpBuckets(timedKeys, end, maxBytes);
+    });
+  }
+
+  private long getBucketCacheBytes() {
+    return cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+  }
+
+  private long getBucketCacheCapacity() {
+    // keeps the warm-up from evicting what it just read
+    return cache.policy().eviction().map(e -> e.getMaximum() * 9 / 10).orElse(Long.MAX_VALUE);
   }
 
   public static boolean isVehicleStopped(final VehicleData vehicleData) {
@@ -362,6 +1092,12 @@ public class VehiclesRepositoryImpl implements IVehiclesRepository {
         && vehicleData.isStopped();
   }
 
+  private static final class EndpointCounters {
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+  }
+
   @Data
   @AllArgsConstructor
   @NoArgsConstructor
@@ -10,4 +10,14 @@ public class WritePolicies {
     return sendKeyPolicy;
   }
 
+  /**
+   * Every operation of an operate returns a result, null if it has none, so the results of a bin
+   * are listed in operation order.
+   */
+  public static WritePolicy getRespondAllOpsPolicy() {
+    final WritePolicy respondAllOpsPolicy = getSendKeyPolicy();
+    respondAllOpsPolicy.respondAllOps = true;
+    return respondAllOpsPolicy;
+  }
+
 }
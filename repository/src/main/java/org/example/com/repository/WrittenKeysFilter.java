@@ -0,0 +1,71 @@
+package org.example.com.repository;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which index entries this process already wrote, so each one is sent once per hour
+ * instead of once per GPS point.
+ *
+ * <p>Bounded: only the most recent {@code maxHours} hours are kept and an hour stops remembering
+ * new keys after {@code maxKeysPerHour}. Forgetting a key only costs a redundant, idempotent
+ * write. Keys are marked after the write succeeded, so a failed write is retried next time.
+ */
+public class WrittenKeysFilter {
+
+  public static final int DEFAULT_MAX_HOURS = 6;
+  public static final int DEFAULT_MAX_KEYS_PER_HOUR = 100_000;
+
+  private final int maxHours;
+  private final int maxKeysPerHour;
+  private final ConcurrentSkipListMap<Long, Set<String>> keysByHour = new ConcurrentSkipListMap<>();
+  private final LongAdder skipped = new LongAdder();
+
+  public WrittenKeysFilter() {
+    this(DEFAULT_MAX_HOURS, DEFAULT_MAX_KEYS_PER_HOUR);
+  }
+
+  public WrittenKeysFilter(final int maxHours, final int maxKeysPerHour) {
+    this.maxHours = maxHours;
+    this.maxKeysPerHour = maxKeysPerHour;
+  }
+
+  /**
+   * @return true if the key was written for that hour, in which case it is counted as skipped
+   */
+  public boolean isWritten(final long hour, final String key) {
+    final Set<String> keys = keysByHour.get(hour);
+    if (keys != null && keys.contains(key)) {
+      skipped.increment();
+      return true;
+    }
+    return false;
+  }
+
+  public void markWritten(final long hour, final String key) {
+    final Set<String> keys = keysByHour.computeIfAbsent(hour, h -> ConcurrentHashMap.newKeySet());
+    if (keys.size() < maxKeysPerHour) {
+      keys.add(key);
+    }
+    while (keysByHour.size() > maxHours && keysByHour.pollFirstEntry() != null) {
+      // drop the oldest hours, their points are not expected anymore
+    }
+  }
+
+  public void markWritten(final long hour, final Collection<String> keys) {
+    for (final String key : keys) {
+      markWritten(hour, key);
+    }
+  }
+
+  public long getSkipped() {
+    return skipped.sum();
+  }
+
+  public void clear() {
+    keysByHour.clear();
+  }
+}
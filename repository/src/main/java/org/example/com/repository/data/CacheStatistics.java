@@ -0,0 +1,46 @@
+package org.example.com.repository.data;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import java.util.concurrent.TimeUnit;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of a cache built with {@code recordStats()}, weight is the estimated bytes of bounded
+ * by weight caches.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheStatistics {
+
+  private String name;
+  private long hits;
+  private long misses;
+  private double hitRate;
+  private long evictions;
+  private long evictionWeight;
+  private long loads;
+  private double averageLoadMillis;
+  private long entries;
+  private long weight;
+  private long maximumWeight;
+
+  public static CacheStatistics of(final String name, final Cache<?, ?> cache) {
+    final CacheStats stats = cache.stats();
+    return new CacheStatistics(name,
+        stats.hitCount(),
+        stats.missCount(),
+        stats.hitRate(),
+        stats.evictionCount(),
+        stats.evictionWeight(),
+        stats.loadCount(),
+        stats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1),
+        cache.estimatedSize(),
+        cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L),
+        cache.policy().eviction().map(e -> e.getMaximum()).orElse(0L)
+    );
+  }
+}
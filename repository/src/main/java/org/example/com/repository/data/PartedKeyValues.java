@@ -1,6 +1,12 @@
 package org.example.com.repository.data;
 
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import lombok.AllArgsConstructor;
@@ -10,9 +16,54 @@ import lombok.Data;
 @AllArgsConstructor
 public class PartedKeyValues {
 
-  // OrderedInHours ASC ORD
+  // OrderedInHours ASC ORD, wraps a sorted int[]
   IntList hours;
   List<List<String>> valuesOnEachHour;
   Map<String, IntList> timeInHoursByKeyValue;
 
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Collects (hour, value) pairs in primitive keyed maps, hours are sorted once on {@link
+   * #build()}.
+   */
+  public static final class Builder {
+
+    private final Int2ObjectOpenHashMap<ObjectArrayList<String>> valuesByHour = new Int2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<String, IntList> hoursByValue = new Object2ObjectOpenHashMap<>();
+
+    private Builder() {
+    }
+
+    public Builder add(final int hour, final String value) {
+      ObjectArrayList<String> values = valuesByHour.get(hour);
+      if (values == null) {
+        values = new ObjectArrayList<>();
+        valuesByHour.put(hour, values);
+      }
+      values.add(value);
+      IntList hoursOfValue = hoursByValue.get(value);
+      if (hoursOfValue == null) {
+        hoursOfValue = new IntArrayList(2);
+        hoursByValue.put(value, hoursOfValue);
+      }
+      hoursOfValue.add(hour);
+      return this;
+    }
+
+    public PartedKeyValues build() {
+      final int[] hours = valuesByHour.keySet().toIntArray();
+      Arrays.sort(hours);
+      final ObjectArrayList<List<String>> values = new ObjectArrayList<>(hours.length);
+      for (final int hour : hours) {
+        values.add(valuesByHour.get(hour));
+      }
+      for (final IntList hoursOfValue : hoursByValue.values()) {
+        IntArrays.quickSort(((IntArrayList) hoursOfValue).elements(), 0, hoursOfValue.size());
+      }
+      return new PartedKeyValues(IntArrayList.wrap(hours), values, hoursByValue);
+    }
+  }
 }
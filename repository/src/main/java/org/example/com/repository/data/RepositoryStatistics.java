@@ -0,0 +1,39 @@
+package org.example.com.repository.data;
+
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RepositoryStatistics {
+
+  private List<CacheStatistics> caches;
+  private long offHeapBuckets;
+  // Aerospike batch requests, one per MAX_BATCH partition, and the keys they read
+  private long batchReads;
+  private long batchReadKeys;
+  private long skippedIndexWrites;
+  private long savedMissingIndexReads;
+  private boolean warmedUp;
+  // buckets the last warm-up found and the ones it read so far
+  private long warmUpBuckets;
+  private long warmUpBucketsRead;
+  private Map<String, EndpointStatistics> endpoints;
+
+  /**
+   * Calls of a repository read and the keys it resolved, cached or not: index hours for
+   * operators, buckets otherwise. Hours answered by the hour partials resolve no keys.
+   */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class EndpointStatistics {
+
+    private long calls;
+    private long keys;
+  }
+}
@@ -0,0 +1,19 @@
+package org.example.com.repository.data;
+
+import java.util.NavigableSet;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.com.data.VehicleData;
+
+/**
+ * Points of a page, in time order, and the cursor of the next page, null after the last one.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class VehicleDataPage {
+
+  private NavigableSet<VehicleData> points;
+  private String nextCursor;
+}
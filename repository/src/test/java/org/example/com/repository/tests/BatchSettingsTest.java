@@ -0,0 +1,38 @@
+package org.example.com.repository.tests;
+
+import org.example.com.repository.BatchSettings;
+import org.example.com.repository.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BatchSettingsTest {
+
+  @Test()
+  public void appliesACopy() {
+    final BatchSettings previous = Utils.getBatchSettings();
+    try {
+      final BatchSettings settings = new BatchSettings(100, 3);
+      Utils.setBatchSettings(settings);
+      settings.setParallelism(7);
+      Assert.assertEquals(Utils.getBatchSettings().getPartitionSize(), 100);
+      Assert.assertEquals(Utils.getBatchSettings().getParallelism(), 3);
+    } finally {
+      Utils.setBatchSettings(previous);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsZeroPartitionSize() {
+    new BatchSettings(0, 4);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsNegativeParallelism() {
+    new BatchSettings(5000, -1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsZeroParallelismSet() {
+    new BatchSettings().setParallelism(0);
+  }
+}
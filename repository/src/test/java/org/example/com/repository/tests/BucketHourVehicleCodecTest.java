@@ -0,0 +1,67 @@
+package org.example.com.repository.tests;
+
+import java.util.ArrayList;
+import java.util.TreeSet;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.BucketHourVehicleCodec;
+import org.example.com.repository.VehiclesRepositoryImpl.BucketHourVehicle;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BucketHourVehicleCodecTest {
+
+  private final DateTime dateTime = new DateTime(2020, 3, 12, 15, 12, DateTimeZone.UTC);
+
+  @Test()
+  public void encodeDecodeEmpty() {
+    final BucketHourVehicle bucket = new BucketHourVehicle("v1", new TreeSet<>(), 0);
+    final BucketHourVehicle decoded = BucketHourVehicleCodec.decode(BucketHourVehicleCodec.encode(
+        bucket));
+    Assert.assertEquals(decoded, bucket);
+  }
+
+  @Test()
+  public void encodeDecodeSingleOperatorAndStop() {
+    final TreeSet<VehicleData> points = new TreeSet<>();
+    for (int i = 0; i < 100; i++) {
+      points.add(new VehicleData(TestUtils.dateTimeToMicros(dateTime.plusSeconds(i * 20)),
+          -6.258078f + i,
+          53.3398f - i,
+          "v1",
+          "CD",
+          "suid",
+          i % 3 == 0
+      ));
+    }
+    final BucketHourVehicle bucket = new BucketHourVehicle("v1", points, 34);
+    final BucketHourVehicle decoded = BucketHourVehicleCodec.decode(BucketHourVehicleCodec.encode(
+        bucket));
+    Assert.assertEquals(decoded.getId(), "v1");
+    Assert.assertEquals(decoded.getStopped(), 34);
+    assertSamePoints(decoded, bucket);
+  }
+
+  @Test()
+  public void encodeDecodeMixedDictionaries() {
+    final TreeSet<VehicleData> points = new TreeSet<>();
+    points.add(new VehicleData(10L, 1f, 2f, "v1", "o1", null, false));
+    points.add(new VehicleData(11L, 3f, 4f, "v1", "o2", "", true));
+    points.add(new VehicleData(5_000_000_000L, 5f, 6f, "v2", "o1", "s1", true));
+    final BucketHourVehicle bucket = new BucketHourVehicle(null, points, 2);
+    final byte[] encoded = BucketHourVehicleCodec.encode(bucket);
+    Assert.assertEquals(encoded[0], BucketHourVehicleCodec.VERSION_1);
+    final BucketHourVehicle decoded = BucketHourVehicleCodec.decode(encoded);
+    Assert.assertNull(decoded.getId());
+    assertSamePoints(decoded, bucket);
+  }
+
+  private static void assertSamePoints(
+      final BucketHourVehicle actual, final BucketHourVehicle expected
+  ) {
+    final ArrayList<VehicleData> actualPoints = new ArrayList<>(actual.getVehicleData());
+    final ArrayList<VehicleData> expectedPoints = new ArrayList<>(expected.getVehicleData());
+    Assert.assertEquals(actualPoints, expectedPoints);
+  }
+}
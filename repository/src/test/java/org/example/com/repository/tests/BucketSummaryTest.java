@@ -0,0 +1,89 @@
+package org.example.com.repository.tests;
+
+import com.aerospike.client.Record;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.BucketSummary;
+import org.example.com.repository.VehiclesRepositoryImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BucketSummaryTest {
+
+  @Test()
+  public void summaryAgreesWithPoints() {
+    final Random random = new Random(42);
+    for (int bucket = 0; bucket < 500; bucket++) {
+      final List<VehicleData> points = new ArrayList<>();
+      final int size = 1 + random.nextInt(10);
+      for (int i = 0; i < size; i++) {
+        final boolean stopped = random.nextInt(4) > 0;
+        points.add(new VehicleData(100 + i * 10, 0f, 0f, "v1", "o1", "s1", stopped));
+      }
+      final BucketSummary summary = BucketSummary.of(points);
+      for (int from = 90; from <= 200; from += 5) {
+        for (int to = from; to <= 200; to += 5) {
+          final Optional<Boolean> stopped = summary.isStoppedOn(from, to);
+          if (stopped.isPresent()) {
+            Assert.assertEquals(stopped.get().booleanValue(), isStopped(points, from, to));
+          }
+        }
+      }
+      Assert.assertEquals(summary.isStoppedOn(0, 1000).get().booleanValue(),
+          isStopped(points, 0, 1000)
+      );
+    }
+  }
+
+  @Test()
+  public void movingPointInsideRangeNeedsPoints() {
+    final List<VehicleData> points = new ArrayList<>();
+    points.add(new VehicleData(100, 0f, 0f, "v1", "o1", "s1", false));
+    points.add(new VehicleData(110, 0f, 0f, "v1", "o1", "s1", true));
+    points.add(new VehicleData(120, 0f, 0f, "v1", "o1", "s1", false));
+    points.add(new VehicleData(130, 0f, 0f, "v1", "o1", "s1", false));
+    final BucketSummary summary = BucketSummary.of(points);
+    Assert.assertFalse(summary.isStoppedOn(105, 125).isPresent());
+    Assert.assertFalse(summary.isStoppedOn(95, 125).get());
+    Assert.assertFalse(summary.isStoppedOn(131, 140).get());
+  }
+
+  @Test()
+  public void appendMergesOnlyOnSummarizedOrNewBuckets() {
+    Assert.assertTrue(BucketSummary.isMergedOn(appendResult(1, null)));
+    Assert.assertTrue(BucketSummary.isMergedOn(appendResult(7,
+        Collections.singletonMap(100L, 0L)
+    )));
+    // written before summaries
+    Assert.assertFalse(BucketSummary.isMergedOn(appendResult(7, null)));
+  }
+
+  /**
+   * The record an append returns, results of the first timestamp bin in operation order.
+   */
+  private static Record appendResult(final int generation, final Map<Long, Long> firstTs) {
+    final Map<String, Object> bins = new HashMap<>();
+    bins.put("firstTs", Arrays.asList(firstTs, 1L, null));
+    return new Record(bins, generation, 0);
+  }
+
+  private static boolean isStopped(final List<VehicleData> points, final long from, final long to) {
+    int inRange = 0;
+    for (final VehicleData point : points) {
+      if (point.getTs() >= from && point.getTs() <= to) {
+        if (!VehiclesRepositoryImpl.isVehicleStopped(point)) {
+          return false;
+        }
+        inRange++;
+      }
+    }
+    return inRange > 0;
+  }
+}
@@ -0,0 +1,32 @@
+package org.example.com.repository.tests;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.com.repository.data.CacheStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CacheStatisticsTest {
+
+  @Test()
+  public void countsHitsMissesAndWeight() {
+    final Cache<String, String> cache = Caffeine.newBuilder()
+        .recordStats()
+        .maximumWeight(100)
+        .weigher((String key, String value) -> value.length())
+        .executor(Runnable::run)
+        .build();
+    cache.put("a", "12345");
+    cache.getIfPresent("a");
+    cache.getIfPresent("b");
+
+    final CacheStatistics statistics = CacheStatistics.of("test", cache);
+    Assert.assertEquals(statistics.getName(), "test");
+    Assert.assertEquals(statistics.getHits(), 1);
+    Assert.assertEquals(statistics.getMisses(), 1);
+    Assert.assertEquals(statistics.getHitRate(), 0.5);
+    Assert.assertEquals(statistics.getEntries(), 1);
+    Assert.assertEquals(statistics.getWeight(), 5);
+    Assert.assertEquals(statistics.getMaximumWeight(), 100);
+  }
+}
@@ -0,0 +1,35 @@
+package org.example.com.repository.tests;
+
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.github.benmanes.caffeine.cache.Weigher;
+import java.util.HashMap;
+import java.util.Map;
+import org.example.com.repository.CacheWeighers;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class CacheWeighersTest {
+
+  @Test()
+  public void indexRecordGrowsWithEntries() {
+    final Weigher<String, BatchRead> weigher = CacheWeighers.indexRecord("data");
+    final BatchRead missing = new BatchRead(new Key("test", "set", "1"), true);
+    final int empty = weigher.weigh("1", missing);
+
+    final Map<String, Object> bins = new HashMap<>();
+    final Map<String, Integer> entries = new HashMap<>();
+    entries.put("10:v1", 0);
+    bins.put("data", entries);
+    final BatchRead one = new BatchRead(new Key("test", "set", "1"), true);
+    one.record = new Record(bins, 0, 0);
+    final int withOne = weigher.weigh("1", one);
+    entries.put("10:v2", 0);
+    final int withTwo = weigher.weigh("1", one);
+
+    Assert.assertTrue(empty > 0);
+    Assert.assertTrue(withOne > empty);
+    Assert.assertEquals(withTwo - withOne, withOne - empty);
+  }
+}
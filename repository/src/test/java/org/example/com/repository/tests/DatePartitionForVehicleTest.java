@@ -90,6 +90,19 @@ public class DatePartitionForVehicleTest {
     System.out.println(operatorsOnDatePart);
   }
 
+  @Test(priority = 16)
+  public void cachedRecordIsPatchedOnWrite() {
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusDays(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(1));
+    final int before = repository.getVehiclesOnDatePart(from, to)
+        .getTimeInHoursByKeyValue()
+        .size();
+    repository.writeVehicleOnDatePart(TestUtils.dateTimeToMicros(dateTime), "2");
+    final PartedKeyValues after = repository.getVehiclesOnDatePart(from, to);
+    Assert.assertEquals(after.getTimeInHoursByKeyValue().size(), before + 1);
+    Assert.assertTrue(after.getTimeInHoursByKeyValue().containsKey("2"));
+  }
+
   public static VehicleTestData simpleData(final DateTime dateTime) {
     return new VehicleTestData("1", TimeUnit.MILLISECONDS.toMicros(dateTime.getMillis()));
   }
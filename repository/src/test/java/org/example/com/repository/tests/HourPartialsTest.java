@@ -0,0 +1,92 @@
+package org.example.com.repository.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.CacheSettings;
+import org.example.com.repository.HourPartials;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HourPartialsTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMicros(1);
+  private static final long START = TimeUnit.HOURS.toMicros(1000);
+
+  private static NavigableSet<VehicleData> points(final long from, final long to) {
+    final TreeSet<VehicleData> points = new TreeSet<>();
+    for (long ts = START; ts < START + 4 * HOUR; ts += HOUR / 4) {
+      if (ts >= from && ts <= to) {
+        points.add(new VehicleData(ts, 0, 0, "v1", "o1", "s1", false));
+      }
+    }
+    return points;
+  }
+
+  @Test()
+  public void computesOnlyMissingHours() {
+    final HourPartials partials = new HourPartials(CacheSettings.MB, new CacheSettings());
+    final List<long[]> computed = new ArrayList<>();
+    final NavigableSet<VehicleData> first = partials.get(START + 1,
+        START + 2 * HOUR + 1,
+        "v1",
+        (from, to) -> {
+          computed.add(new long[]{from, to});
+          return CompletableFuture.completedFuture(points(from, to));
+        }
+    ).join();
+    Assert.assertEquals(first, points(START + 1, START + 2 * HOUR + 1));
+    Assert.assertEquals(computed.size(), 1);
+    Assert.assertEquals(computed.get(0)[0], START);
+    Assert.assertEquals(computed.get(0)[1], START + 3 * HOUR - 1);
+
+    // slid forward inside the cached hours
+    final NavigableSet<VehicleData> slid = partials.get(START + HOUR / 2,
+        START + 3 * HOUR - 1,
+        "v1",
+        (from, to) -> {
+          throw new AssertionError("all hours are cached");
+        }
+    ).join();
+    Assert.assertEquals(slid, points(START + HOUR / 2, START + 3 * HOUR - 1));
+
+    partials.invalidate(1001, "v1");
+    partials.get(START, START + 4 * HOUR - 1, "v1", (from, to) -> {
+      computed.add(new long[]{from, to});
+      return CompletableFuture.completedFuture(points(from, to));
+    }).join();
+    Assert.assertEquals(computed.get(1)[0], START + HOUR);
+    Assert.assertEquals(computed.get(1)[1], START + 4 * HOUR - 1);
+  }
+
+  @Test()
+  public void doesNotCacheHoursWrittenWhileComputed() {
+    final HourPartials partials = new HourPartials(CacheSettings.MB, new CacheSettings());
+    final CompletableFuture<NavigableSet<VehicleData>> stale = new CompletableFuture<>();
+    final CompletableFuture<NavigableSet<VehicleData>> first = partials.get(START,
+        START + HOUR - 1,
+        "v1",
+        (from, to) -> stale
+    );
+    // a write lands after the points were read
+    partials.invalidate(1000, "v1");
+    stale.complete(new TreeSet<>());
+    Assert.assertTrue(first.join().isEmpty());
+
+    final List<long[]> computed = new ArrayList<>();
+    final NavigableSet<VehicleData> second = partials.get(START,
+        START + HOUR - 1,
+        "v1",
+        (from, to) -> {
+          computed.add(new long[]{from, to});
+          return CompletableFuture.completedFuture(points(from, to));
+        }
+    ).join();
+    Assert.assertEquals(computed.size(), 1);
+    Assert.assertEquals(second, points(START, START + HOUR - 1));
+  }
+}
@@ -0,0 +1,67 @@
+package org.example.com.repository.tests;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.example.com.repository.HourPresenceIndexImpl;
+import org.example.com.repository.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class HourPresenceIndexTest {
+
+  @Test()
+  public void findsSetHoursAcrossPages() {
+    final int pageHours = HourPresenceIndexImpl.PAGE_HOURS;
+    final int firstPage = 600;
+    final byte[] first = new byte[HourPresenceIndexImpl.PAGE_BYTES];
+    HourPresenceIndexImpl.setHour(first, 0);
+    HourPresenceIndexImpl.setHour(first, 63);
+    HourPresenceIndexImpl.setHour(first, 64);
+    HourPresenceIndexImpl.setHour(first, pageHours - 1);
+    final byte[] second = new byte[HourPresenceIndexImpl.PAGE_BYTES];
+    HourPresenceIndexImpl.setHour(second, 5);
+
+    final Map<String, long[]> pages = new HashMap<>();
+    pages.put(Utils.createTimedKey(firstPage, "bus"), HourPresenceIndexImpl.toWords(first));
+    pages.put(Utils.createTimedKey(firstPage + 1, "bus"), HourPresenceIndexImpl.toWords(second));
+    pages.put(Utils.createTimedKey(firstPage + 2, "bus"), new long[0]);
+
+    final int start = firstPage * pageHours;
+    Assert.assertEquals(HourPresenceIndexImpl.hoursOf(pages, "bus", start, start + 3 * pageHours),
+        new IntArrayList(new int[]{start, start + 63, start + 64, start + pageHours - 1,
+            start + pageHours + 5})
+    );
+    // range edges inside the pages
+    Assert.assertEquals(HourPresenceIndexImpl.hoursOf(pages, "bus", start + 1, start + 63),
+        new IntArrayList(new int[]{start + 63})
+    );
+    Assert.assertTrue(HourPresenceIndexImpl.hoursOf(pages, "car", start, start + pageHours)
+        .isEmpty());
+  }
+
+  @Test()
+  public void findsRunsOfAbsentPages() {
+    final int pageHours = HourPresenceIndexImpl.PAGE_HOURS;
+    final int firstPage = 600;
+    final int start = firstPage * pageHours;
+    final Map<String, long[]> pages = new HashMap<>();
+    pages.put(Utils.createTimedKey(firstPage + 1, "bus"), new long[0]);
+
+    final List<int[]> absent = HourPresenceIndexImpl.absentPages(pages,
+        "bus",
+        start + 10,
+        start + 3 * pageHours + 20
+    );
+    Assert.assertEquals(absent.size(), 2);
+    // whole pages, so they can be backfilled
+    Assert.assertEquals(absent.get(0), new int[]{start, start + pageHours - 1});
+    Assert.assertEquals(absent.get(1), new int[]{start + 2 * pageHours, start + 4 * pageHours - 1});
+    Assert.assertTrue(HourPresenceIndexImpl.absentPages(pages,
+        "bus",
+        start + pageHours,
+        start + 2 * pageHours - 1
+    ).isEmpty());
+  }
+}
@@ -0,0 +1,78 @@
+package org.example.com.repository.tests;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.example.com.repository.InFlightReads;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class InFlightReadsTest {
+
+  @Test()
+  public void concurrentMissesShareOneRead() {
+    final InFlightReads<String> inFlight = new InFlightReads<>();
+    final Map<String, String> cache = new ConcurrentHashMap<>();
+    final AtomicInteger loads = new AtomicInteger();
+    final CompletableFuture<Map<String, String>> server = new CompletableFuture<>();
+
+    final CompletableFuture<Map<String, String>> first = inFlight.getAll(Arrays.asList("a", "b"),
+        cache::get,
+        keys -> {
+          loads.incrementAndGet();
+          return server.thenApply(values -> {
+            cache.putAll(values);
+            return values;
+          });
+        }
+    );
+    final CompletableFuture<Map<String, String>> second = inFlight.getAll(Arrays.asList("b", "c"),
+        cache::get,
+        keys -> {
+          loads.incrementAndGet();
+          Assert.assertEquals(keys, Collections.singletonList("c"));
+          final Map<String, String> values = new HashMap<>();
+          values.put("c", "C");
+          return CompletableFuture.completedFuture(values);
+        }
+    );
+    Assert.assertFalse(second.isDone());
+
+    final Map<String, String> values = new HashMap<>();
+    values.put("a", "A");
+    values.put("b", "B");
+    server.complete(values);
+
+    Assert.assertEquals(first.join().get("b"), "B");
+    Assert.assertEquals(second.join().get("b"), "B");
+    Assert.assertEquals(second.join().get("c"), "C");
+    Assert.assertEquals(loads.get(), 2);
+    Assert.assertEquals(inFlight.size(), 0);
+  }
+
+  @Test()
+  public void failureReachesJoinedCallers() {
+    final InFlightReads<String> inFlight = new InFlightReads<>();
+    final CompletableFuture<Map<String, String>> server = new CompletableFuture<>();
+    final List<String> key = Collections.singletonList("a");
+    final CompletableFuture<Map<String, String>> first = inFlight.getAll(key,
+        k -> null,
+        keys -> server
+    );
+    final CompletableFuture<Map<String, String>> second = inFlight.getAll(key,
+        k -> null,
+        keys -> {
+          throw new AssertionError("joined");
+        }
+    );
+    server.completeExceptionally(new IllegalStateException("down"));
+    Assert.assertTrue(first.isCompletedExceptionally());
+    Assert.assertTrue(second.isCompletedExceptionally());
+    Assert.assertEquals(inFlight.size(), 0);
+  }
+}
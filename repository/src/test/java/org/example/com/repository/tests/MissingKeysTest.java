@@ -0,0 +1,24 @@
+package org.example.com.repository.tests;
+
+import java.util.concurrent.TimeUnit;
+import org.example.com.repository.CacheSettings;
+import org.example.com.repository.MissingKeys;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MissingKeysTest {
+
+  @Test()
+  public void remembersClosedPeriodsOnly() {
+    final MissingKeys missingKeys = new MissingKeys(TimeUnit.HOURS, new CacheSettings());
+    final long currentHour = TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+    missingKeys.markMissing("1000");
+    missingKeys.markMissing(currentHour + "");
+    Assert.assertTrue(missingKeys.isMissing("1000"));
+    Assert.assertFalse(missingKeys.isMissing(currentHour + ""));
+    Assert.assertEquals(missingKeys.getSaved(), 1);
+
+    missingKeys.invalidate("1000");
+    Assert.assertFalse(missingKeys.isMissing("1000"));
+  }
+}
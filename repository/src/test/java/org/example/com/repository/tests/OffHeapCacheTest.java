@@ -0,0 +1,74 @@
+package org.example.com.repository.tests;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.example.com.repository.OffHeapCache;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OffHeapCacheTest {
+
+  private static OffHeapCache<String> create(final long maxBytes, final int slabBytes) {
+    return new OffHeapCache<>(maxBytes,
+        slabBytes,
+        value -> value.getBytes(StandardCharsets.UTF_8),
+        buffer -> StandardCharsets.UTF_8.decode(buffer).toString()
+    );
+  }
+
+  @Test()
+  public void takeMovesEntryOut() {
+    final OffHeapCache<String> cache = create(1024, 256);
+    cache.put("a", "first");
+    cache.put("b", "second");
+    Assert.assertEquals(cache.take("b"), "second");
+    Assert.assertNull(cache.take("b"));
+    cache.invalidate("a");
+    Assert.assertNull(cache.take("a"));
+  }
+
+  @Test()
+  public void reusesOldestSlabWhenFull() {
+    // two slabs of two entries each
+    final OffHeapCache<String> cache = create(32, 16);
+    cache.put("a", "1234");
+    cache.put("b", "1234");
+    cache.put("c", "1234");
+    cache.put("d", "1234");
+    cache.put("e", "1234");
+    Assert.assertNull(cache.take("a"));
+    Assert.assertNull(cache.take("b"));
+    Assert.assertEquals(cache.take("c"), "1234");
+    Assert.assertEquals(cache.take("e"), "1234");
+    Assert.assertEquals(cache.size(), 1);
+  }
+
+  @Test()
+  public void disabledKeepsNothing() {
+    final OffHeapCache<String> cache = create(0, 16);
+    cache.put("a", "1234");
+    Assert.assertFalse(cache.isEnabled());
+    Assert.assertNull(cache.take("a"));
+  }
+
+  @Test()
+  public void receivesEvictedEntriesOnly() {
+    final OffHeapCache<String> offHeap = create(1024, 256);
+    final Cache<String, String> cache = Caffeine.newBuilder()
+        .maximumSize(1)
+        .executor(Runnable::run)
+        .writer(offHeap.asVictimWriter())
+        .build();
+    cache.put("a", "first");
+    cache.put("b", "second");
+    cache.cleanUp();
+    Assert.assertEquals(offHeap.size(), 1);
+
+    final String evicted = cache.getIfPresent("a") == null ? "a" : "b";
+    cache.put(evicted, "updated");
+    cache.cleanUp();
+    Assert.assertNotEquals(offHeap.take(evicted), "first");
+  }
+}
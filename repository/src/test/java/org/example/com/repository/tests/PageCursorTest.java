@@ -0,0 +1,24 @@
+package org.example.com.repository.tests;
+
+import org.example.com.data.VehicleData;
+import org.example.com.repository.PageCursor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PageCursorTest {
+
+  @Test()
+  public void decodesToTheSamePosition() {
+    final VehicleData last = new VehicleData();
+    last.setTs(1584025920000000L);
+    last.setVehicleId("bus:33");
+    final VehicleData after = PageCursor.decode(PageCursor.encode(last));
+    Assert.assertEquals(after.compareTo(last), 0);
+    Assert.assertNull(PageCursor.decode(null));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void rejectsForeignCursors() {
+    PageCursor.decode("not a cursor");
+  }
+}
@@ -0,0 +1,60 @@
+package org.example.com.repository.tests;
+
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.example.com.repository.Utils;
+import org.example.com.repository.data.PartedKeyValues;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PartedKeyValuesTest {
+
+  @Test()
+  public void decodeIndexRecord() {
+    final Map<Object, Object> entries = new HashMap<>();
+    entries.put("12:v1", 0L);
+    entries.put("10:v1", 0L);
+    entries.put("10:v2:x", 0L);
+    entries.put("11:v2", 0L);
+    entries.put("30:v3", 0L);
+    entries.put("x:v4", 0L);
+    entries.put("13:", 0L);
+    final BatchRead batchRead = new BatchRead(new Key("test", "set", "k"), true);
+    batchRead.record = new Record(Collections.singletonMap("data", entries), 0, 0);
+
+    final PartedKeyValues partedKeyValues = Utils.toPartedKeyValues(TimeUnit.HOURS.toMicros(10),
+        TimeUnit.HOURS.toMicros(13),
+        "data",
+        Arrays.asList(batchRead, new BatchRead(new Key("test", "set", "missing"), true))
+    );
+
+    Assert.assertEquals(partedKeyValues.getHours().toIntArray(), new int[]{10, 11, 12});
+    Assert.assertEquals(partedKeyValues.getValuesOnEachHour().get(0).size(), 2);
+    Assert.assertEquals(partedKeyValues.getValuesOnEachHour().get(1),
+        Collections.singletonList("v2")
+    );
+    Assert.assertEquals(partedKeyValues.getTimeInHoursByKeyValue().size(), 3);
+    Assert.assertEquals(partedKeyValues.getTimeInHoursByKeyValue().get("v1").toIntArray(),
+        new int[]{10, 12}
+    );
+    Assert.assertEquals(partedKeyValues.getTimeInHoursByKeyValue().get("v2:x").toIntArray(),
+        new int[]{10}
+    );
+  }
+
+  @Test()
+  public void parseTimedKeyTime() {
+    Assert.assertEquals(Utils.parseTimedKeyTime("443215:o1", 6), 443215L);
+    Assert.assertEquals(Utils.parseTimedKeyTime("-3:o1", 2), -3L);
+    Assert.assertEquals(Utils.parseTimedKeyTime("99999999999:o1", 11), Utils.INVALID_TIME);
+    Assert.assertEquals(Utils.parseTimedKeyTime("1a:o1", 2), Utils.INVALID_TIME);
+    Assert.assertEquals(Utils.parseTimedKeyTime(":o1", 0), Utils.INVALID_TIME);
+    Assert.assertEquals(Utils.parseTimedKeyTime("o1", -1), Utils.INVALID_TIME);
+  }
+}
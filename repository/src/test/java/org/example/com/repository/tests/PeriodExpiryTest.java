@@ -0,0 +1,46 @@
+package org.example.com.repository.tests;
+
+import java.util.concurrent.TimeUnit;
+import org.example.com.repository.PeriodExpiry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PeriodExpiryTest {
+
+  private static final long NOW = TimeUnit.HOURS.toMillis(1000) + TimeUnit.MINUTES.toMillis(10);
+
+  @Test()
+  public void closedHoursNeverExpire() {
+    final PeriodExpiry<Object> expiry = new PeriodExpiry<>(TimeUnit.HOURS,
+        30_000,
+        TimeUnit.MINUTES.toMillis(5),
+        () -> NOW
+    );
+    Assert.assertEquals(expiry.expireAfterCreate("998:v1", "", 0), Long.MAX_VALUE);
+    Assert.assertEquals(expiry.expireAfterCreate("998", "", 0), Long.MAX_VALUE);
+    // closed 10 minutes ago, after the 5 minutes grace
+    Assert.assertTrue(expiry.isClosed("999:v1"));
+    Assert.assertFalse(expiry.isClosed("1000:v1"));
+    Assert.assertEquals(expiry.expireAfterCreate("1000:v1", "", 0),
+        TimeUnit.SECONDS.toNanos(30)
+    );
+  }
+
+  @Test()
+  public void graceKeepsRecentlyClosedOpen() {
+    final PeriodExpiry<Object> expiry = new PeriodExpiry<>(TimeUnit.HOURS,
+        30_000,
+        TimeUnit.MINUTES.toMillis(15),
+        () -> NOW
+    );
+    Assert.assertFalse(expiry.isClosed("999:v1"));
+  }
+
+  @Test()
+  public void keysWithoutPeriodAreOpen() {
+    final PeriodExpiry<Object> expiry = new PeriodExpiry<>(TimeUnit.DAYS, 30_000, 0, () -> NOW);
+    Assert.assertFalse(expiry.isClosed("v1:998"));
+    Assert.assertFalse(expiry.isClosed(""));
+    Assert.assertTrue(expiry.isClosed("1"));
+  }
+}
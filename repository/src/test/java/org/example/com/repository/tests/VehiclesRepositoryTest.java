@@ -1,11 +1,21 @@
 package org.example.com.repository.tests;
 
 import com.aerospike.client.AerospikeClient;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.example.com.data.VehicleData;
+import org.example.com.repository.AerospikeClients;
+import org.example.com.repository.BatchSettings;
+import org.example.com.repository.BucketWriteMode;
+import org.example.com.repository.DatePartitionForOperatorIndexImpl;
+import org.example.com.repository.HourPresenceIndexImpl;
 import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.Utils;
 import org.example.com.repository.VehiclesRepositoryImpl;
+import org.example.com.repository.data.VehicleDataPage;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.testng.Assert;
@@ -189,6 +199,255 @@ public class VehiclesRepositoryTest {
 
   }
 
+  @Test()
+  public void readWriteAppendMode() {
+    final IVehiclesRepository appendRepository = new VehiclesRepositoryImpl(client,
+        BucketWriteMode.APPEND
+    );
+    for (int i = 0; i < 10; i++) {
+      appendRepository.writeData(createSampleDataWithStop("o", "v1", dateTime.plus(i), i < 5));
+    }
+    appendRepository.writeData(createSampleDataWithStop("o", "v2", dateTime, true));
+
+    final NavigableSet<VehicleData> v1 = appendRepository.getVehiclesDataWithId(
+        TestUtils.dateTimeToMicros(dateTime),
+        TestUtils.dateTimeToMicros(dateTime.plusHours(1)),
+        "v1"
+    );
+    Assert.assertEquals(v1.size(), 10);
+    Assert.assertEquals(v1.stream().filter(e -> e.isStopped()).count(), 5);
+
+    // rewriting compacts the appended points into the encoded bucket
+    writeAndCreateSampleData("o", "v1", dateTime.plus(10), false);
+    repository.invalidateAllCache();
+    Assert.assertEquals(repository.getVehiclesDataWithId(TestUtils.dateTimeToMicros(dateTime),
+        TestUtils.dateTimeToMicros(dateTime.plusHours(1)),
+        "v1"
+    ).size(), 11);
+    queryStoppedAndAssert(dateTime, dateTime.plus(4), "o", 2);
+    queryStoppedAndAssert(dateTime, dateTime.plus(5), "o", 1);
+  }
+
+  @Test()
+  public void appendedStopsReplaceMovingPoints() {
+    final IVehiclesRepository appendRepository = new VehiclesRepositoryImpl(client,
+        BucketWriteMode.APPEND
+    );
+    for (int i = 0; i < 5; i++) {
+      appendRepository.writeData(createSampleDataWithStop("o", "v1", dateTime.plus(i), false));
+    }
+    queryStoppedAndAssert(dateTime.minusHours(1), dateTime.plusHours(1), "o", 0);
+    // the same points again, now stopped, twice
+    for (int i = 0; i < 10; i++) {
+      appendRepository.writeData(createSampleDataWithStop("o", "v1", dateTime.plus(i % 5), true));
+    }
+    repository.invalidateAllCache();
+    queryStoppedAndAssert(dateTime.minusHours(1), dateTime.plusHours(1), "o", 1);
+    Assert.assertEquals(repository.getVehiclesDataWithId(TestUtils.dateTimeToMicros(dateTime),
+        TestUtils.dateTimeToMicros(dateTime.plusHours(1)),
+        "v1"
+    ).size(), 5);
+  }
+
+  @Test()
+  public void readWriteBatch() {
+    final List<VehicleData> batch = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batch.add(createSampleDataWithStop("o1", "v1", dateTime.plusMinutes(i * 10), true));
+      batch.add(createSampleDataWithStop("o2", "v2", dateTime.plusMinutes(i * 10), i > 0));
+    }
+    repository.writeBatch(batch);
+
+    testOperatorsGet(dateTime.minusDays(1), dateTime.plusDays(1), 2);
+    testNVehicleOfOperator(dateTime.minusDays(1), dateTime.plusDays(1), "o1", 10);
+    Assert.assertEquals(repository.getVehiclesDataWithId(TestUtils.dateTimeToMicros(dateTime),
+        TestUtils.dateTimeToMicros(dateTime.plusDays(1)),
+        "v2"
+    ).size(), 10);
+    queryStoppedAndAssert(dateTime.minusDays(1), dateTime.plusDays(1), "o1", 1);
+    queryStoppedAndAssert(dateTime.minusDays(1), dateTime.plusDays(1), "o2", 0);
+  }
+
+  @Test()
+  public void readAsyncOnEventLoops() {
+    final VehiclesRepositoryImpl asyncRepository = new VehiclesRepositoryImpl("127.0.0.1", 3000);
+    for (int i = 0; i < 10; i++) {
+      writeAndCreateSampleData("o1", "v1", dateTime.plusMinutes(i * 10), true);
+    }
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusDays(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(1));
+
+    Assert.assertEquals(asyncRepository.getOperatorsAsync(from, to).join().size(), 1);
+    Assert.assertEquals(asyncRepository.getVehiclesOfOperatorAsync(from, to, "o1").join().size(),
+        10
+    );
+    Assert.assertEquals(asyncRepository.getVehiclesStoppedOfOperatorAsync(from, to, "o1")
+        .join()
+        .size(), 1);
+    Assert.assertEquals(asyncRepository.getVehiclesDataWithIdAsync(from, to, "v1").join(),
+        repository.getVehiclesDataWithId(from, to, "v1")
+    );
+    // continuations run off the event loops, a blocking call in one does not deadlock
+    final VehiclesRepositoryImpl nested = new VehiclesRepositoryImpl("127.0.0.1", 3000);
+    Assert.assertEquals(nested.getOperatorsAsync(from, to)
+        .thenApply(operators -> nested.getVehiclesOfOperator(from, to, "o1").size())
+        .join()
+        .intValue(), 10);
+    // more blocked continuations than processors still leave threads to complete their reads
+    final AerospikeClient eventLoopClient = AerospikeClients.create("127.0.0.1", 3000);
+    try {
+      final List<CompletableFuture<Integer>> blocked = new ArrayList<>();
+      for (int i = 0; i < 16 * Runtime.getRuntime().availableProcessors(); i++) {
+        // cold caches, so every nested call reads from the server
+        final VehiclesRepositoryImpl cold = new VehiclesRepositoryImpl(eventLoopClient);
+        blocked.add(cold.getOperatorsAsync(from, to)
+            .thenApply(operators -> cold.getVehiclesDataWithId(from, to, "v1").size()));
+      }
+      for (final CompletableFuture<Integer> future : blocked) {
+        Assert.assertEquals(future.join().intValue(), 10);
+      }
+    } finally {
+      eventLoopClient.close();
+    }
+  }
+
+  @Test()
+  public void readInSmallParallelPartitions() {
+    for (int i = 0; i < 30; i++) {
+      writeAndCreateSampleData("o1", "v1", dateTime.plusMinutes(i * 50));
+    }
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusDays(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(2));
+    final NavigableSet<VehicleData> expected = repository.getVehiclesDataWithId(from, to, "v1");
+
+    final BatchSettings settings = Utils.getBatchSettings();
+    try {
+      Utils.setBatchSettings(new BatchSettings(2, 3));
+      final VehiclesRepositoryImpl blocking = new VehiclesRepositoryImpl(client);
+      final VehiclesRepositoryImpl async = new VehiclesRepositoryImpl("127.0.0.1", 3000);
+      Assert.assertEquals(blocking.getVehiclesDataWithIdAsync(from, to, "v1").join(), expected);
+      Assert.assertEquals(async.getVehiclesDataWithIdAsync(from, to, "v1").join(), expected);
+    } finally {
+      Utils.setBatchSettings(settings);
+    }
+    Assert.assertEquals(expected.size(), 30);
+  }
+
+  @Test()
+  public void readPointsWrittenBeforeHourPresence() {
+    for (int i = 0; i < 5; i++) {
+      writeAndCreateSampleData("o1", "v1", dateTime.plusHours(i), i == 4);
+    }
+    // as if written before the hour presence index existed
+    Utils.deleteAll(client, "test", HourPresenceIndexImpl.VEHICLES_SETNAME);
+    Utils.deleteAll(client, "test", HourPresenceIndexImpl.OPERATORS_SETNAME);
+    repository.invalidateAllCache();
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusDays(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(1));
+
+    Assert.assertEquals(repository.getVehiclesDataWithId(from, to, "v1").size(), 5);
+    Assert.assertEquals(repository.getVehiclesOfOperator(from, to, "o1").size(), 5);
+  }
+
+  @Test()
+  public void readPointsWrittenBeforeHourPresenceInAWrittenPage() {
+    for (int i = 0; i < 4; i++) {
+      writeAndCreateSampleData("o1", "v1", dateTime.plusHours(i), false);
+    }
+    // as if written before the hour presence index existed
+    Utils.deleteAll(client, "test", HourPresenceIndexImpl.VEHICLES_SETNAME);
+    Utils.deleteAll(client, "test", HourPresenceIndexImpl.OPERATORS_SETNAME);
+    repository.invalidateAllCache();
+    // creates the pages of the legacy points
+    writeAndCreateSampleData("o1", "v1", dateTime.plusHours(4), true);
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusDays(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(1));
+
+    Assert.assertEquals(repository.getVehiclesDataWithId(from, to, "v1").size(), 5);
+    Assert.assertEquals(repository.getVehiclesOfOperator(from, to, "o1").size(), 5);
+    // answered by the backfilled pages alone
+    Utils.deleteAll(client, "test", "datevehiclepart");
+    Utils.deleteAll(client, "test", DatePartitionForOperatorIndexImpl.SETNAME);
+    repository.invalidateAllCache();
+    Assert.assertEquals(repository.getVehiclesDataWithId(from, to, "v1").size(), 5);
+    Assert.assertEquals(repository.getVehiclesOfOperator(from, to, "o1").size(), 5);
+  }
+
+  @Test()
+  public void streamTraceInTimeOrder() {
+    final VehiclesRepositoryImpl streaming = new VehiclesRepositoryImpl(client);
+    final List<VehicleData> batch = new ArrayList<>();
+    // more hours than one chunk of buckets
+    for (int i = 0; i < 60; i++) {
+      batch.add(createSampleData("o1", "v1", dateTime.plusMinutes(i * 50)));
+    }
+    streaming.writeBatch(batch);
+    final long from = TestUtils.dateTimeToMicros(dateTime.plusMinutes(20));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(2));
+
+    final List<VehicleData> streamed = new ArrayList<>();
+    streaming.streamVehiclesDataWithIdAsync(from, to, "v1", points -> {
+      streamed.addAll(points);
+      return CompletableFuture.completedFuture(null);
+    }).join();
+    Assert.assertEquals(streamed, new ArrayList<>(streaming.getVehiclesDataWithId(from, to, "v1")));
+    Assert.assertEquals(streamed.size(), 59);
+  }
+
+  @Test()
+  public void pagesResumeAfterCursor() {
+    final VehiclesRepositoryImpl paged = new VehiclesRepositoryImpl(client);
+    final List<VehicleData> batch = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      batch.add(createSampleData("o1", "v1", dateTime.plusMinutes(i * 20)));
+      batch.add(createSampleData("o1", "v2", dateTime.plusMinutes(i * 20)));
+    }
+    paged.writeBatch(batch);
+    final long from = TestUtils.dateTimeToMicros(dateTime.minusHours(1));
+    final long to = TestUtils.dateTimeToMicros(dateTime.plusDays(1));
+
+    final List<VehicleData> operatorPoints = new ArrayList<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      final VehicleDataPage page = paged.getVehiclesOfOperatorPageAsync(from, to, "o1", cursor, 7)
+          .join();
+      Assert.assertTrue(page.getPoints().size() <= 7);
+      operatorPoints.addAll(page.getPoints());
+      cursor = page.getNextCursor();
+      pages++;
+    } while (cursor != null);
+    Assert.assertEquals(pages, 9);
+    Assert.assertEquals(operatorPoints,
+        new ArrayList<>(paged.getVehiclesOfOperator(from, to, "o1"))
+    );
+
+    final VehicleDataPage first = paged.getVehiclesDataWithIdPageAsync(from, to, "v2", null, 25)
+        .join();
+    final VehicleDataPage second = paged.getVehiclesDataWithIdPageAsync(from,
+        to,
+        "v2",
+        first.getNextCursor(),
+        25
+    ).join();
+    Assert.assertEquals(second.getPoints().size(), 5);
+    Assert.assertNull(second.getNextCursor());
+  }
+
+  @Test()
+  public void warmUpRecentDays() {
+    final DateTime now = DateTime.now(DateTimeZone.UTC);
+    writeAndCreateSampleData("o1", "v1", now.minusHours(2));
+    writeAndCreateSampleData("o1", "v2", now.minusHours(1));
+    final VehiclesRepositoryImpl warmed = new VehiclesRepositoryImpl(client);
+    warmed.warmUp(1, 1 << 20).join();
+    Assert.assertTrue(warmed.isWarmedUp());
+    Assert.assertEquals(warmed.getVehiclesOfOperator(TestUtils.dateTimeToMicros(now.minusDays(1)),
+        TestUtils.dateTimeToMicros(now),
+        "o1"
+    ).size(), 2);
+  }
+
   public void queryStoppedAndAssert(
       final DateTime from, final DateTime to, final String operator, final int assertSize
   ) {
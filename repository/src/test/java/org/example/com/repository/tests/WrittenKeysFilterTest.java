@@ -0,0 +1,35 @@
+package org.example.com.repository.tests;
+
+import org.example.com.repository.WrittenKeysFilter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WrittenKeysFilterTest {
+
+  @Test()
+  public void skipsOnlyWrittenKeys() {
+    final WrittenKeysFilter filter = new WrittenKeysFilter();
+    Assert.assertFalse(filter.isWritten(10, "10:v1"));
+    filter.markWritten(10, "10:v1");
+    Assert.assertTrue(filter.isWritten(10, "10:v1"));
+    Assert.assertFalse(filter.isWritten(10, "10:v2"));
+    Assert.assertFalse(filter.isWritten(11, "10:v1"));
+    Assert.assertEquals(filter.getSkipped(), 1);
+
+    filter.clear();
+    Assert.assertFalse(filter.isWritten(10, "10:v1"));
+  }
+
+  @Test()
+  public void forgetsOldestHoursAndBeyondCapacity() {
+    final WrittenKeysFilter filter = new WrittenKeysFilter(2, 1);
+    filter.markWritten(10, "a");
+    filter.markWritten(10, "b");
+    filter.markWritten(11, "a");
+    filter.markWritten(12, "a");
+    Assert.assertFalse(filter.isWritten(10, "a"));
+    Assert.assertFalse(filter.isWritten(11, "b"));
+    Assert.assertTrue(filter.isWritten(11, "a"));
+    Assert.assertTrue(filter.isWritten(12, "a"));
+  }
+}
@@ -0,0 +1,381 @@
+package org.example.eda;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import org.example.com.data.VehicleData;
+
+/**
+ * Parses SIRI rows straight from bytes into {@link VehicleData}, without splitting lines into
+ * strings nor building {@link CsvRow}s.
+ *
+ * <p>Plain files are memory mapped and cut in chunks aligned to line boundaries that are parsed
+ * in parallel. Files ending with ".gz" are decompressed and parsed on the calling thread. Vehicle,
+ * operator and stop ids are interned, a known id costs no allocation.
+ */
+public class SiriCsvParser {
+
+  private static final int FIELDS = 15;
+  private static final int TIMESTAMP = 0;
+  private static final int OPERATOR = 6;
+  private static final int LON = 8;
+  private static final int LAT = 9;
+  private static final int VEHICLE_ID = 12;
+  private static final int STOP_ID = 13;
+  private static final int STOP = 14;
+
+  private static final long MAX_CHUNK_BYTES = 64L << 20;
+  private static final int GZIP_BUFFER_BYTES = 1 << 20;
+  private static final double[] POW10 = new double[19];
+
+  static {
+    POW10[0] = 1d;
+    for (int i = 1; i < POW10.length; i++) {
+      POW10[i] = POW10[i - 1] * 10d;
+    }
+  }
+
+  @FunctionalInterface
+  public interface Sink {
+
+    void accept(VehicleData vehicleData) throws InterruptedException;
+  }
+
+  public static void parse(final String fileLocation, final int parallelism, final Sink sink)
+      throws IOException, InterruptedException {
+    final Path path = Paths.get(fileLocation);
+    if (fileLocation.endsWith(".gz")) {
+      try (final InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(
+          path)), GZIP_BUFFER_BYTES)) {
+        parseStream(in, sink);
+      }
+    } else {
+      parseMapped(path, parallelism, sink);
+    }
+  }
+
+  private static void parseMapped(final Path path, final int parallelism, final Sink sink)
+      throws IOException, InterruptedException {
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final int wanted = (int) Math.max(parallelism, (size + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+      final List<long[]> chunks = splitOnLines(channel, size, wanted);
+      final AtomicInteger next = new AtomicInteger();
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      final List<Thread> workers = new ArrayList<>();
+      for (int i = 0; i < Math.min(parallelism, chunks.size()); i++) {
+        final Thread worker = new Thread(() -> {
+          final LineParser parser = new LineParser();
+          int chunk;
+          while (failure.get() == null && (chunk = next.getAndIncrement()) < chunks.size()) {
+            final long start = chunks.get(chunk)[0];
+            final long end = chunks.get(chunk)[1];
+            try {
+              final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, end - start);
+              parser.parse(buffer, 0, (int) (end - start), sink);
+            } catch (final Throwable t) {
+              failure.compareAndSet(null, t);
+            }
+          }
+        }, "csv-parser-" + i);
+        worker.start();
+        workers.add(worker);
+      }
+      for (final Thread worker : workers) {
+        worker.join();
+      }
+      rethrow(failure.get());
+    }
+  }
+
+  private static void parseStream(final InputStream in, final Sink sink)
+      throws IOException, InterruptedException {
+    final LineParser parser = new LineParser();
+    byte[] buffer = new byte[GZIP_BUFFER_BYTES];
+    int length = 0;
+    int read;
+    while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      int lastNewLine = length - 1;
+      while (lastNewLine >= 0 && buffer[lastNewLine] != '\n') {
+        lastNewLine--;
+      }
+      if (lastNewLine < 0) {
+        if (length == buffer.length) {
+          final byte[] bigger = new byte[buffer.length * 2];
+          System.arraycopy(buffer, 0, bigger, 0, length);
+          buffer = bigger;
+        }
+        continue;
+      }
+      parser.parse(ByteBuffer.wrap(buffer), 0, lastNewLine + 1, sink);
+      length -= lastNewLine + 1;
+      System.arraycopy(buffer, lastNewLine + 1, buffer, 0, length);
+    }
+    parser.parse(ByteBuffer.wrap(buffer), 0, length, sink);
+  }
+
+  /**
+   * @return [start, end) byte ranges, every range but the last ends right after a new line
+   */
+  private static List<long[]> splitOnLines(
+      final FileChannel channel, final long size, final int chunks
+  ) throws IOException {
+    final List<long[]> ranges = new ArrayList<>(chunks);
+    final ByteBuffer probe = ByteBuffer.allocate(4096);
+    long start = 0L;
+    for (int i = 1; i <= chunks && start < size; i++) {
+      long end = i == chunks ? size : Math.max(start, size / chunks * i);
+      while (end < size) {
+        probe.clear();
+        final int read = channel.read(probe, end);
+        int newLine = -1;
+        for (int j = 0; j < read && newLine < 0; j++) {
+          if (probe.get(j) == '\n') {
+            newLine = j;
+          }
+        }
+        if (newLine >= 0) {
+          end += newLine + 1;
+          break;
+        }
+        end += Math.max(read, 0);
+      }
+      end = Math.min(end, size);
+      if (end > start) {
+        ranges.add(new long[]{start, end});
+      }
+      start = end;
+    }
+    return ranges;
+  }
+
+  private static void rethrow(final Throwable throwable) throws IOException, InterruptedException {
+    if (throwable == null) {
+      return;
+    }
+    if (throwable instanceof IOException) {
+      throw (IOException) throwable;
+    }
+    if (throwable instanceof InterruptedException) {
+      throw (InterruptedException) throwable;
+    }
+    if (throwable instanceof RuntimeException) {
+      throw (RuntimeException) throwable;
+    }
+    throw new IllegalStateException(throwable);
+  }
+
+  /**
+   * Not thread safe, one per parsing thread.
+   */
+  static final class LineParser {
+
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final Interner interner = new Interner();
+
+    void parse(final ByteBuffer buffer, final int from, final int to, final Sink sink)
+        throws InterruptedException {
+      int lineStart = from;
+      for (int i = from; i < to; i++) {
+        if (buffer.get(i) == '\n') {
+          parseLine(buffer, lineStart, i, sink);
+          lineStart = i + 1;
+        }
+      }
+      if (lineStart < to) {
+        parseLine(buffer, lineStart, to, sink);
+      }
+    }
+
+    private void parseLine(final ByteBuffer buffer, final int start, int end, final Sink sink)
+        throws InterruptedException {
+      if (end > start && buffer.get(end - 1) == '\r') {
+        end--;
+      }
+      if (end == start) {
+        return;
+      }
+      int field = 0;
+      int fieldStart = start;
+      for (int i = start; i <= end && field < FIELDS; i++) {
+        if (i == end || buffer.get(i) == ',') {
+          starts[field] = fieldStart;
+          ends[field] = i;
+          field++;
+          fieldStart = i + 1;
+        }
+      }
+      if (field < FIELDS) {
+        throw new IllegalArgumentException("Malformed SIRI row: " + asString(buffer, start, end));
+      }
+      sink.accept(new VehicleData(parseLong(buffer, starts[TIMESTAMP], ends[TIMESTAMP]),
+          parseFloat(buffer, starts[LON], ends[LON]),
+          parseFloat(buffer, starts[LAT], ends[LAT]),
+          interner.intern(buffer, starts[VEHICLE_ID], ends[VEHICLE_ID]),
+          interner.intern(buffer, starts[OPERATOR], ends[OPERATOR]),
+          interner.intern(buffer, starts[STOP_ID], ends[STOP_ID]),
+          parseLong(buffer, starts[STOP], ends[STOP]) != 0
+      ));
+    }
+  }
+
+  static long parseLong(final ByteBuffer buffer, final int start, final int end) {
+    int i = start;
+    final boolean negative = i < end && buffer.get(i) == '-';
+    if (negative || (i < end && buffer.get(i) == '+')) {
+      i++;
+    }
+    if (i == end || end - i > 18) {
+      return Long.parseLong(asString(buffer, start, end));
+    }
+    long value = 0L;
+    for (; i < end; i++) {
+      final int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.parseLong(asString(buffer, start, end));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Plain decimals are computed as mantissa / 10^scale in double precision, anything else goes
+   * through {@link Float#parseFloat(String)}.
+   */
+  static float parseFloat(final ByteBuffer buffer, final int start, final int end) {
+    int i = start;
+    final boolean negative = i < end && buffer.get(i) == '-';
+    if (negative || (i < end && buffer.get(i) == '+')) {
+      i++;
+    }
+    long mantissa = 0L;
+    int digits = 0;
+    int scale = 0;
+    boolean dot = false;
+    for (; i < end; i++) {
+      final byte b = buffer.get(i);
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (dot) {
+          scale++;
+        }
+      } else if (b == '.' && !dot) {
+        dot = true;
+      } else {
+        digits = POW10.length;
+        break;
+      }
+    }
+    if (digits == 0 || digits >= POW10.length) {
+      return Float.parseFloat(asString(buffer, start, end));
+    }
+    final double value = mantissa / POW10[scale];
+    return (float) (negative ? -value : value);
+  }
+
+  private static String asString(final ByteBuffer buffer, final int start, final int end) {
+    final byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Open addressing table from bytes to strings, only allocates the first time an id is seen.
+   */
+  static final class Interner {
+
+    private byte[][] keys = new byte[1024][];
+    private String[] values = new String[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+
+    String intern(final ByteBuffer buffer, final int start, final int end) {
+      final int length = end - start;
+      if (length == 0) {
+        return "";
+      }
+      int hash = 1;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + buffer.get(i);
+      }
+      final int mask = keys.length - 1;
+      int index = mix(hash) & mask;
+      while (keys[index] != null) {
+        if (hashes[index] == hash && sameBytes(keys[index], buffer, start, length)) {
+          return values[index];
+        }
+        index = (index + 1) & mask;
+      }
+      final byte[] key = new byte[length];
+      for (int i = 0; i < length; i++) {
+        key[i] = buffer.get(start + i);
+      }
+      final String value = new String(key, StandardCharsets.UTF_8).intern();
+      keys[index] = key;
+      values[index] = value;
+      hashes[index] = hash;
+      if (++size * 2 > keys.length) {
+        grow();
+      }
+      return value;
+    }
+
+    private void grow() {
+      final byte[][] oldKeys = keys;
+      final String[] oldValues = values;
+      final int[] oldHashes = hashes;
+      keys = new byte[oldKeys.length * 2][];
+      values = new String[oldKeys.length * 2];
+      hashes = new int[oldKeys.length * 2];
+      final int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) {
+          int index = mix(oldHashes[i]) & mask;
+          while (keys[index] != null) {
+            index = (index + 1) & mask;
+          }
+          keys[index] = oldKeys[i];
+          values[index] = oldValues[i];
+          hashes[index] = oldHashes[i];
+        }
+      }
+    }
+
+    private static int mix(final int hash) {
+      return hash ^ (hash >>> 16);
+    }
+
+    private static boolean sameBytes(
+        final byte[] key, final ByteBuffer buffer, final int start, final int length
+    ) {
+      if (key.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (key[i] != buffer.get(start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
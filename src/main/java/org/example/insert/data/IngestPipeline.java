@@ -0,0 +1,153 @@
+package org.example.insert.data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.example.com.data.VehicleData;
+import org.example.com.repository.IVehiclesRepository;
+import org.example.com.repository.Utils;
+import org.example.eda.SiriCsvParser;
+
+/**
+ * Streaming ingest: read -> parse -> partition by timed key -> batch -> write.
+ *
+ * <p>Reading and parsing are done by {@link SiriCsvParser} threads, which feed the writers through
+ * bounded queues. A full queue blocks the parser feeding it, so memory stays constant whatever
+ * the size of the input and writes start as soon as the first rows are parsed. All points of a
+ * timed key go to the same writer, so a bucket is never written by two threads at once.
+ */
+public class IngestPipeline implements AutoCloseable {
+
+  private static final VehicleData END_OF_POINTS = new VehicleData();
+
+  private final IVehiclesRepository repository;
+  private final int parsers;
+  private final int batchSize;
+  private final List<BlockingQueue<VehicleData>> partitions;
+  private final List<Thread> writers;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private final LongAdder written = new LongAdder();
+
+  public IngestPipeline(
+      final IVehiclesRepository repository,
+      final int parsers,
+      final int writers,
+      final int batchSize,
+      final int queueCapacity
+  ) {
+    this.repository = repository;
+    this.parsers = parsers;
+    this.batchSize = batchSize;
+    this.partitions = new ArrayList<>(writers);
+    this.writers = new ArrayList<>(writers);
+    for (int i = 0; i < writers; i++) {
+      final BlockingQueue<VehicleData> partition = new ArrayBlockingQueue<>(queueCapacity);
+      partitions.add(partition);
+      this.writers.add(start("ingest-writer-" + i, () -> writeLoop(partition)));
+    }
+  }
+
+  /**
+   * Returns once the whole file is parsed, the last points may still be queued for writing.
+   */
+  public void ingest(final String fileLocation) throws IOException, InterruptedException {
+    SiriCsvParser.parse(fileLocation, parsers, this::accept);
+  }
+
+  /**
+   * Routes a point to the writer owning its timed key, blocking while that writer is behind.
+   */
+  public void accept(final VehicleData vehicleData) throws InterruptedException {
+    if (failure.get() != null) {
+      throw new IllegalStateException("Ingest failed", failure.get());
+    }
+    final long hours = TimeUnit.MICROSECONDS.toHours(vehicleData.getTs());
+    final String timedKey = Utils.createTimedKey(hours, vehicleData.getVehicleId());
+    partitions.get(Math.abs(timedKey.hashCode() % partitions.size())).put(vehicleData);
+  }
+
+  public long getWritten() {
+    return written.sum();
+  }
+
+  /**
+   * Drains every stage and waits for the last batch to be written. If interrupted, returns early
+   * with the interrupt flag set.
+   */
+  @Override
+  public void close() {
+    try {
+      for (final BlockingQueue<VehicleData> partition : partitions) {
+        partition.put(END_OF_POINTS);
+      }
+      for (final Thread writer : writers) {
+        writer.join();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    final Throwable throwable = failure.get();
+    if (throwable != null) {
+      throw new IllegalStateException("Ingest failed", throwable);
+    }
+  }
+
+  private void writeLoop(final BlockingQueue<VehicleData> partition) {
+    final List<VehicleData> batch = new ArrayList<>(batchSize);
+    try {
+      boolean running = true;
+      while (running) {
+        final VehicleData first = partition.take();
+        running = first != END_OF_POINTS;
+        if (running) {
+          batch.add(first);
+          partition.drainTo(batch, batchSize - 1);
+        }
+        // the end marker is the last element ever put on a partition
+        if (running && batch.get(batch.size() - 1) == END_OF_POINTS) {
+          batch.remove(batch.size() - 1);
+          running = false;
+        }
+        if (!batch.isEmpty() && failure.get() == null) {
+          repository.writeBatch(batch);
+          written.add(batch.size());
+        }
+        batch.clear();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final RuntimeException e) {
+      fail(e);
+      drainPoints(partition);
+    }
+  }
+
+  private void fail(final Throwable throwable) {
+    throwable.printStackTrace();
+    failure.compareAndSet(null, throwable);
+  }
+
+  /**
+   * Keeps consuming after a failure so parsers never block on a full queue.
+   */
+  private static void drainPoints(final BlockingQueue<VehicleData> partition) {
+    try {
+      while (partition.take() != END_OF_POINTS) {
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static Thread start(final String name, final Runnable runnable) {
+    final Thread thread = new Thread(runnable, name);
+    thread.start();
+    return thread;
+  }
+}